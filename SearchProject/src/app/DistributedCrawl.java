@@ -0,0 +1,224 @@
+package app;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import crawler.CrawlCoordinator;
+import crawler.CrawlPolicy;
+import crawler.CsrGraph;
+import crawler.LinkGraph;
+import crawler.WorkerLink;
+import util.Logger;
+import util.Utils;
+
+final class DistributedCrawl {
+
+    static final int DEFAULT_PORT = 7420;
+
+    private static final Set<String> NODE_LOCAL = Set.of(
+            "crawler.role", "crawler.coordinator", "crawler.workers", "crawler.port",
+            "crawler.threads", "crawler.config", "crawler.seedFile", "crawler.acceptTimeoutMs");
+
+    static final class Result {
+        final List<Path> pageDirs;
+        final CsrGraph graph;
+        final Set<String> hosts;
+
+        Result(List<Path> pageDirs, CsrGraph graph, Set<String> hosts) {
+            this.pageDirs = pageDirs;
+            this.graph = graph;
+            this.hosts = hosts;
+        }
+    }
+
+    private DistributedCrawl() {}
+
+    static Result coordinate(CrawlPolicy policy, String runId, Path pagesDir) {
+        int workers = Math.max(1, Integer.getInteger("crawler.workers", 2));
+        int port = Integer.getInteger("crawler.port", DEFAULT_PORT);
+
+        Properties shared = new Properties();
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if ((key.startsWith("crawler.") || key.startsWith("analyzer.")) && !NODE_LOCAL.contains(key)) {
+                shared.setProperty(key, System.getProperty(key));
+            }
+        }
+        shared.setProperty("crawler.seeds", String.join(" ", policy.seeds()));
+        shared.setProperty("crawler.maxDepth", String.valueOf(policy.maxDepth()));
+        shared.setProperty("crawler.maxPages", String.valueOf((policy.maxPages() + workers - 1) / workers));
+        if (policy.maxBytes() > 0) {
+            shared.setProperty("crawler.maxBytes", String.valueOf((policy.maxBytes() + workers - 1) / workers));
+        }
+        shared.setProperty("crawler.pagesDir", pagesDir.toAbsolutePath().toString());
+
+        List<CrawlCoordinator.Summary> parts;
+        try {
+            CrawlCoordinator coordinator = new CrawlCoordinator(
+                    port, workers, Long.getLong("crawler.acceptTimeoutMs", 120_000L), 500);
+            parts = coordinator.run(shared, runId);
+        } catch (IOException e) {
+            Logger.error("Distributed crawl failed: " + e.getMessage(), e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        List<Path> dirs = new ArrayList<>();
+        LinkGraph merged = new LinkGraph();
+        Set<String> hosts = new TreeSet<>();
+        long pages = 0;
+        for (CrawlCoordinator.Summary part : parts) {
+            pages += part.pages();
+            Path dir = Path.of(part.pagesDir());
+            if (!Files.isDirectory(dir)) {
+                Logger.warn("Pages of partition " + part.partition() + " (" + part.worker()
+                        + ") are not reachable from here: " + dir);
+                continue;
+            }
+            dirs.add(dir);
+            mergeGraph(merged, dir.resolve("graph.bin"));
+            try {
+                Path hostsFile = dir.resolve("hosts.txt");
+                if (Files.exists(hostsFile)) {
+                    for (String h : Files.readAllLines(hostsFile, StandardCharsets.UTF_8)) {
+                        if (!h.isBlank()) hosts.add(h.trim());
+                    }
+                }
+            } catch (IOException e) {
+                Logger.warn("Cannot read hosts of partition " + part.partition() + ": " + e.getMessage());
+            }
+        }
+        Logger.info("Distributed crawl finished: " + pages + " pages from " + parts.size() + " workers");
+        return new Result(dirs, merged.toCsr(), hosts);
+    }
+
+    private static void mergeGraph(LinkGraph merged, Path file) {
+        if (!Files.exists(file)) return;
+        try {
+            CsrGraph g = CsrGraph.load(file);
+            int[] offsets = g.offsets();
+            int[] targets = g.targets();
+            for (int u = 0; u < g.nodeCount(); u++) {
+                if (offsets[u] == offsets[u + 1]) continue;
+                List<String> out = new ArrayList<>(offsets[u + 1] - offsets[u]);
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) out.add(g.url(targets[e]));
+                merged.addEdges(g.url(u), out);
+            }
+        } catch (IOException e) {
+            Logger.warn("Cannot read link graph " + file + ": " + e.getMessage());
+        }
+    }
+
+    static void work(String coordinator, boolean multi) {
+        String host = coordinator;
+        int port = DEFAULT_PORT;
+        int colon = coordinator.lastIndexOf(':');
+        if (colon > 0) {
+            host = coordinator.substring(0, colon);
+            try {
+                port = Integer.parseInt(coordinator.substring(colon + 1).trim());
+            } catch (NumberFormatException e) {
+                Logger.warn("Invalid coordinator port in " + coordinator + "; using " + DEFAULT_PORT);
+            }
+        }
+
+        String name;
+        try {
+            name = InetAddress.getLocalHost().getHostName() + "/" + ProcessHandle.current().pid();
+        } catch (IOException e) {
+            name = "worker/" + ProcessHandle.current().pid();
+        }
+
+        try (WorkerLink link = WorkerLink.connect(host, port, name,
+                Integer.getInteger("crawler.forwardBatch", 256),
+                Long.getLong("crawler.forwardFlushMs", 200L))) {
+
+            Properties cfg = link.config();
+            for (String key : cfg.stringPropertyNames()) {
+                System.setProperty(key, cfg.getProperty(key));
+            }
+            CrawlPolicy policy = CrawlPolicy.fromSystemProperties();
+            Path pagesDir = Path.of(cfg.getProperty("crawler.pagesDir", "data/pages/" + link.runId()))
+                    .resolve("part-" + link.partition());
+            Logger.info("Worker " + name + " owns partition " + link.partition() + "/" + link.partitions()
+                    + " of run " + link.runId());
+
+            WebCrawlerGermany crawler = new WebCrawlerGermany(pagesDir, multi, policy);
+            crawler.setRouter(link);
+            link.start(new WorkerLink.Node() {
+                @Override
+                public void accept(String url, int depth) {
+                    crawler.receive(url, depth);
+                }
+
+                @Override
+                public void stop() {
+                    crawler.stop();
+                }
+
+                @Override
+                public long pagesCrawled() {
+                    return crawler.pagesCrawled();
+                }
+
+                @Override
+                public int queued() {
+                    return crawler.queued();
+                }
+
+                @Override
+                public long bytesFetched() {
+                    return crawler.bytesFetched();
+                }
+
+                @Override
+                public boolean isIdle() {
+                    return crawler.isIdle();
+                }
+            });
+
+            crawler.crawl(policy.seeds(), policy.maxDepth());
+            link.awaitStop();
+
+            crawler.savePageManifest();
+            crawler.saveDiscoveredHosts(pagesDir.resolve("hosts.txt").toString());
+            try {
+                crawler.getLinkGraph().toCsr().save(pagesDir.resolve("graph.bin"));
+            } catch (IOException e) {
+                Logger.error("Failed to save link graph: " + e.getMessage(), e);
+            }
+            link.done(crawler.pagesCrawled(), pagesDir.toAbsolutePath().toString());
+            Logger.info("Worker finished with " + crawler.pagesCrawled() + " pages");
+
+        } catch (IOException e) {
+            Logger.error("Cannot join coordinator at " + coordinator + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static void saveHosts(Set<String> hosts, Path file) {
+        try {
+            Utils.writeAtomic(file, w -> {
+                try {
+                    for (String h : hosts) {
+                        w.write(h);
+                        w.write(System.lineSeparator());
+                    }
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
+        } catch (IOException e) {
+            Logger.error("Failed to save hosts: " + e.getMessage(), e);
+        }
+    }
+}
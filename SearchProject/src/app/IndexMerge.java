@@ -0,0 +1,234 @@
+package app;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import indexer.DocStore;
+import indexer.DocValues;
+import indexer.IndexCommit;
+import indexer.SegmentReader;
+import indexer.SegmentWriter;
+import util.Logger;
+
+public final class IndexMerge {
+
+    static final String SEGMENT = "index.seg";
+    static final String DOCS = "docs.bin";
+
+    private static final class Input {
+        final Path dir;
+        final IndexCommit commit;
+        final SegmentReader reader;
+        int order;
+        int[] remap;
+        int[] hostMap;
+
+        Input(Path dir, IndexCommit commit, SegmentReader reader) {
+            this.dir = dir;
+            this.commit = commit;
+            this.reader = reader;
+        }
+    }
+
+    private IndexMerge() {}
+
+    public static void main(String[] args) {
+        Logger.setLevel(Logger.Level.INFO);
+        Path base = Path.of(System.getenv().getOrDefault("CRAWLER_DATA_DIR", "data"), "index");
+        Path out = base.resolve("merged");
+        List<Path> inputs = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--out=")) {
+                out = Path.of(arg.substring("--out=".length()).trim());
+            } else if (!arg.isBlank()) {
+                inputs.add(Path.of(arg.trim()));
+            }
+        }
+        if (inputs.isEmpty()) inputs = findRuns(base, out);
+        if (inputs.isEmpty()) {
+            Logger.error("No index segments found under " + base);
+            return;
+        }
+
+        try {
+            merge(inputs, out);
+        } catch (IOException e) {
+            Logger.error("Index merge failed: " + e.getMessage(), e);
+        }
+    }
+
+    static List<Path> findRuns(Path base, Path exclude) {
+        List<Path> runs = new ArrayList<>();
+        if (!Files.isDirectory(base)) return runs;
+        try (Stream<Path> dirs = Files.list(base)) {
+            dirs.filter(IndexCommit::exists)
+                .filter(d -> !d.toAbsolutePath().normalize().equals(exclude.toAbsolutePath().normalize()))
+                .sorted()
+                .forEach(runs::add);
+        } catch (IOException e) {
+            Logger.error("Cannot list " + base + ": " + e.getMessage(), e);
+        }
+        return runs;
+    }
+
+    static void merge(List<Path> dirs, Path outDir) throws IOException {
+        long start = System.nanoTime();
+        List<Input> inputs = new ArrayList<>();
+        try {
+            for (Path dir : dirs) {
+                try {
+                    IndexCommit commit = IndexCommit.openLatest(dir);
+                    inputs.add(new Input(dir, commit, SegmentReader.open(commit.file(SEGMENT))));
+                } catch (IOException e) {
+                    Logger.warn("Skipping " + dir + ": " + e.getMessage());
+                }
+            }
+            if (inputs.isEmpty()) throw new IOException("no readable segments");
+
+            inputs.sort(Comparator.comparingLong((Input in) -> in.reader.createdMillis()).reversed()
+                    .thenComparing(in -> in.dir.toString(), Comparator.reverseOrder()));
+
+            String language = inputs.get(0).reader.language();
+            for (Input in : inputs) {
+                if (!Objects.equals(in.reader.language(), language)) {
+                    Logger.warn(in.dir + " was analyzed as " + in.reader.language() + ", not " + language
+                            + "; its terms may not match queries on the merged index");
+                }
+            }
+
+            int docsIn = 0;
+            int docsOut = 0;
+            long newest = 0;
+            Set<String> urls = new HashSet<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                Input in = inputs.get(i);
+                in.order = i;
+                in.remap = new int[in.reader.docCount()];
+                newest = Math.max(newest, in.reader.createdMillis());
+                for (int d = 0; d < in.remap.length; d++) {
+                    String url = in.reader.docUrl(d);
+                    in.remap[d] = url != null && !urls.add(url) ? -1 : docsOut++;
+                }
+                docsIn += in.remap.length;
+            }
+            urls = null;
+
+            Files.createDirectories(outDir);
+            long gen = IndexCommit.nextGeneration(outDir);
+            Path segment = IndexCommit.file(outDir, SEGMENT, gen);
+            Path docStore = IndexCommit.file(outDir, DOCS, gen);
+            long terms = 0;
+            long postings = 0;
+            DocValues hosts = new DocValues();
+            for (Input in : inputs) {
+                DocValues dv = in.reader.docValues();
+                in.hostMap = new int[dv.hostCount()];
+                for (int h = 0; h < in.hostMap.length; h++) in.hostMap[h] = hosts.internHost(dv.host(h));
+            }
+
+            try (SegmentWriter w = new SegmentWriter(segment, newest, docsOut, hosts.hosts(), language)) {
+                Set<String> names = new HashSet<>();
+                for (Input in : inputs) {
+                    DocValues dv = in.reader.docValues();
+                    for (int d = 0; d < in.remap.length; d++) {
+                        if (in.remap[d] < 0) continue;
+                        String name = in.reader.docName(d);
+                        if (!names.add(name)) {
+                            name = name + "#" + in.dir.getFileName();
+                            names.add(name);
+                        }
+                        int host = dv.hostId(d);
+                        w.addDoc(name, in.reader.docUrl(d), in.reader.norms(d), in.reader.staticScore(d),
+                                host < 0 ? -1 : in.hostMap[host], dv.pathDepth(d), dv.fetchTime(d),
+                                dv.contentLength(d));
+                    }
+                }
+
+                PriorityQueue<Input> heap = new PriorityQueue<>(
+                        Comparator.comparing((Input in) -> in.reader.term()).thenComparingInt(in -> in.order));
+                for (Input in : inputs) {
+                    if (in.reader.next()) heap.add(in);
+                }
+
+                int[] docs = new int[1024];
+                long[] freqs = new long[1024];
+                List<Input> group = new ArrayList<>(inputs.size());
+                while (!heap.isEmpty()) {
+                    group.clear();
+                    Input head = heap.poll();
+                    String term = head.reader.term();
+                    String word = head.reader.word();
+                    group.add(head);
+                    while (!heap.isEmpty() && heap.peek().reader.term().equals(term)) group.add(heap.poll());
+
+                    int n = 0;
+                    for (Input in : group) {
+                        SegmentReader r = in.reader;
+                        if (n + r.df() > docs.length) {
+                            docs = Arrays.copyOf(docs, Math.max(n + r.df(), docs.length * 2));
+                            freqs = Arrays.copyOf(freqs, docs.length);
+                        }
+                        for (int i = 0; i < r.df(); i++) {
+                            int doc = in.remap[r.doc(i)];
+                            if (doc < 0) continue;
+                            docs[n] = doc;
+                            freqs[n++] = r.freqs(i);
+                        }
+                        if (r.next()) heap.add(in);
+                    }
+                    if (n == 0) continue;
+                    w.addTerm(term, word, docs, freqs, n);
+                    terms++;
+                    postings += n;
+                }
+                w.commit();
+            }
+
+            mergeDocStores(inputs, docStore);
+            IndexCommit.write(outDir, gen, Map.of(SEGMENT, segment, DOCS, docStore));
+
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            Logger.info("Merged " + inputs.size() + " runs into " + outDir + ": " + docsOut + " docs ("
+                    + (docsIn - docsOut) + " duplicate URLs dropped), " + terms + " terms, "
+                    + postings + " postings in " + ms + " ms");
+        } finally {
+            for (Input in : inputs) {
+                try {
+                    in.reader.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    private static void mergeDocStores(List<Input> inputs, Path file) throws IOException {
+        try (DocStore merged = DocStore.create(file)) {
+            for (Input in : inputs) {
+                Path src = in.commit.file(DOCS);
+                if (src == null) {
+                    Logger.warn("No stored documents in " + in.dir + "; its results will have no snippets");
+                    continue;
+                }
+                try (DocStore store = DocStore.open(src)) {
+                    for (int d = 0; d < in.remap.length; d++) {
+                        if (in.remap[d] < 0) continue;
+                        DocStore.StoredDoc doc = store.get(d);
+                        if (doc != null) merged.put(in.remap[d], doc.title(), doc.url(), doc.text());
+                    }
+                }
+            }
+            merged.finish();
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package app;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import crawler.CrawlPolicy;
+import indexer.DocStore;
+import indexer.IndexCommit;
+import indexer.Indexer;
+import indexer.IndexReader;
+import indexer.SegmentIndex;
+import search.Search;
+import search.SearchHit;
+import search.SearchResults;
+import search.SnippetGenerator;
+import util.Logger;
+import util.Utils;
+
+public final class LoadHarness {
+
+    private LoadHarness() {}
+
+    public static void main(String[] args) {
+        Logger.setLevel(Logger.Level.INFO);
+        Map<String, String> opt = new LinkedHashMap<>();
+        opt.put("pages", "500");
+        opt.put("fanOut", "8");
+        opt.put("pageBytes", "8192");
+        opt.put("sizeSigma", "0.6");
+        opt.put("latencyMs", "5");
+        opt.put("jitterMs", "10");
+        opt.put("errorRate", "0.01");
+        opt.put("missingRate", "0.02");
+        opt.put("vocabulary", "5000");
+        opt.put("seed", "42");
+        opt.put("port", "0");
+        opt.put("serverThreads", "32");
+        opt.put("modes", "single,multi");
+        opt.put("threads", "0");
+        opt.put("depth", "50");
+        opt.put("queries", "");
+        opt.put("queryCount", "2000");
+        opt.put("warmup", "200");
+        opt.put("clients", "1");
+        opt.put("snippets", "true");
+        opt.put("report", "");
+        opt.put("verbose", "false");
+
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                Logger.warn("Ignoring argument " + arg + " (expected --key=value)");
+                continue;
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            if (!opt.containsKey(key)) {
+                Logger.warn("Unknown option --" + key + "; known options: " + opt.keySet());
+                continue;
+            }
+            opt.put(key, arg.substring(arg.indexOf('=') + 1).trim());
+        }
+
+        try {
+            run(opt);
+        } catch (IllegalArgumentException e) {
+            Logger.error("Load test failed: " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            Logger.error("Load test failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void run(Map<String, String> opt) throws IOException {
+        String runId = "bench_" + System.currentTimeMillis();
+        Path baseDir = Path.of(System.getenv().getOrDefault("CRAWLER_DATA_DIR", "data"), "bench", runId);
+        Path reportFile = opt.get("report").isEmpty()
+                ? baseDir.resolve("report.json")
+                : Path.of(opt.get("report"));
+        boolean verbose = Boolean.parseBoolean(opt.get("verbose"));
+        List<Boolean> modes = modes(opt.get("modes"));
+
+        SyntheticSite site = new SyntheticSite(
+                integer(opt, "pages"), integer(opt, "fanOut"), integer(opt, "pageBytes"),
+                decimal(opt, "sizeSigma"), integer(opt, "latencyMs"), integer(opt, "jitterMs"),
+                decimal(opt, "errorRate"), decimal(opt, "missingRate"), integer(opt, "vocabulary"),
+                Long.parseLong(opt.get("seed")));
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"runId\": ").append(quote(runId)).append(",\n  \"config\": {");
+        boolean first = true;
+        for (Map.Entry<String, String> e : opt.entrySet()) {
+            json.append(first ? "\n" : ",\n").append("    ").append(quote(e.getKey())).append(": ")
+                .append(literal(e.getValue()));
+            first = false;
+        }
+        json.append("\n  },\n  \"crawl\": [");
+
+        Path lastPages = null;
+        try {
+            site.start(integer(opt, "port"), integer(opt, "serverThreads"));
+            Logger.info("Synthetic site with " + site.pages() + " pages at " + site.seedUrl());
+
+            first = true;
+            for (boolean multi : modes) {
+                Path pagesDir = baseDir.resolve("pages_" + (multi ? "multi" : "single"));
+                CrawlPolicy policy = new CrawlPolicy(List.of(site.seedUrl()), integer(opt, "depth"), site.pages(),
+                        0, 0L, 0L, 0L, 0L, integer(opt, "threads"), List.of(), List.of(), List.of());
+
+                long requests = site.requests();
+                long errors = site.injectedErrors();
+                long missing = site.notFound();
+                long served = site.bytesServed();
+
+                if (!verbose) Logger.setLevel(Logger.Level.WARN);
+                long start = System.nanoTime();
+                WebCrawlerGermany crawler = new WebCrawlerGermany(pagesDir, multi, policy);
+                crawler.crawl(policy.seeds(), policy.maxDepth());
+                double seconds = (System.nanoTime() - start) / 1e9;
+                crawler.savePageManifest();
+                Logger.setLevel(Logger.Level.INFO);
+                lastPages = pagesDir;
+
+                int pages = crawler.pagesCrawled();
+                long bytes = crawler.bytesFetched();
+                Logger.info(String.format(Locale.ROOT, "Crawl (%s): %d pages, %d bytes in %.2f s = %.1f pages/s, %.0f bytes/s",
+                        multi ? "multi" : "single", pages, bytes, seconds, pages / seconds, bytes / seconds));
+
+                json.append(first ? "\n" : ",\n").append("    {")
+                    .append("\"mode\": ").append(quote(multi ? "multi" : "single"))
+                    .append(", \"pages\": ").append(pages)
+                    .append(", \"bytes\": ").append(bytes)
+                    .append(", \"seconds\": ").append(number(seconds))
+                    .append(", \"pagesPerSec\": ").append(number(pages / seconds))
+                    .append(", \"bytesPerSec\": ").append(number(bytes / seconds))
+                    .append(", \"serverRequests\": ").append(site.requests() - requests)
+                    .append(", \"serverBytes\": ").append(site.bytesServed() - served)
+                    .append(", \"injectedErrors\": ").append(site.injectedErrors() - errors)
+                    .append(", \"notFound\": ").append(site.notFound() - missing)
+                    .append('}');
+                first = false;
+            }
+            json.append("\n  ]");
+
+            if (lastPages != null) {
+                List<String> queries = loadQueries(opt, site);
+                json.append(",\n");
+                replay(lastPages, queries, opt, verbose, json);
+            }
+        } finally {
+            site.close();
+        }
+        json.append("\n}\n");
+
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        Utils.writeAtomic(reportFile, json.toString().getBytes(StandardCharsets.UTF_8), false);
+        Logger.info("Report written to " + reportFile);
+    }
+
+    private static List<Boolean> modes(String value) {
+        List<Boolean> modes = new ArrayList<>();
+        for (String mode : value.split("[,\\s]+")) {
+            if (mode.isEmpty()) continue;
+            if (Main.isMultiThreadMode(mode)) {
+                modes.add(true);
+            } else if (mode.equalsIgnoreCase("s") || mode.equalsIgnoreCase("single") || mode.equalsIgnoreCase("st")) {
+                modes.add(false);
+            } else {
+                throw new IllegalArgumentException("Unknown crawl mode '" + mode + "' in --modes (use single or multi)");
+            }
+        }
+        return modes;
+    }
+
+    private static void replay(Path pagesDir, List<String> queries, Map<String, String> opt, boolean verbose,
+                               StringBuilder json) {
+        if (!verbose) Logger.setLevel(Logger.Level.WARN);
+        long start = System.nanoTime();
+        Indexer indexer = new Indexer();
+        Main.indexPages(indexer, pagesDir);
+        double indexSeconds = (System.nanoTime() - start) / 1e9;
+        Logger.setLevel(Logger.Level.INFO);
+
+        Search search = new Search(indexer.getAnalyzer());
+        SnippetGenerator snippets = Boolean.parseBoolean(opt.get("snippets"))
+                ? new SnippetGenerator(indexer.getAnalyzer())
+                : null;
+
+        Snapshot snapshot;
+        try {
+            snapshot = Snapshot.open(indexer, pagesDir.resolveSibling("index"), search, snippets,
+                    queries.isEmpty() ? "" : queries.get(0));
+        } catch (IOException e) {
+            Logger.error("Snapshot round trip failed: " + e.getMessage(), e);
+            json.append("  \"snapshot\": null");
+            return;
+        }
+        IndexReader index = snapshot.index;
+        DocStore docs = snapshot.docs;
+
+        int warmup = Math.min(integer(opt, "warmup"), queries.size());
+        for (int i = 0; i < warmup; i++) {
+            runQuery(search, snippets, index, docs, queries.get(i));
+        }
+
+        int clients = Math.max(1, integer(opt, "clients"));
+        long[] latencies = new long[queries.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong zeroHits = new AtomicLong();
+        List<Thread> threads = new ArrayList<>(clients);
+        long replayStart = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            Thread t = new Thread(() -> {
+                for (int i = next.getAndIncrement(); i < latencies.length; i = next.getAndIncrement()) {
+                    long t0 = System.nanoTime();
+                    int total = runQuery(search, snippets, index, docs, queries.get(i));
+                    latencies[i] = System.nanoTime() - t0;
+                    if (total == 0) zeroHits.incrementAndGet();
+                }
+            }, "query-client-" + c);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        double seconds = (System.nanoTime() - replayStart) / 1e9;
+        Arrays.sort(latencies);
+        long blocksRead = index instanceof SegmentIndex ? ((SegmentIndex) index).blocksRead() : 0;
+
+        Logger.info(String.format(Locale.ROOT,
+                "Indexed %d docs in %.2f s; replayed %d queries on the saved index with %d clients in %.2f s = %.0f qps, "
+                        + "p50 %.3f ms, p99 %.3f ms, p999 %.3f ms",
+                index.totalDocs(), indexSeconds, latencies.length, clients, seconds,
+                latencies.length / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 0.999)));
+
+        double sum = 0;
+        for (long l : latencies) sum += l;
+        json.append("  \"index\": {\"docs\": ").append(index.totalDocs())
+            .append(", \"terms\": ").append(index.terms().size())
+            .append(", \"seconds\": ").append(number(indexSeconds)).append("},\n")
+            .append("  \"snapshot\": ").append(snapshot.json).append(",\n")
+            .append("  \"search\": {\"queries\": ").append(latencies.length)
+            .append(", \"warmup\": ").append(warmup)
+            .append(", \"clients\": ").append(clients)
+            .append(", \"zeroHitQueries\": ").append(zeroHits.get())
+            .append(", \"blocksRead\": ").append(blocksRead)
+            .append(", \"seconds\": ").append(number(seconds))
+            .append(", \"qps\": ").append(number(latencies.length / seconds))
+            .append(", \"latencyMs\": {\"mean\": ")
+            .append(number(latencies.length == 0 ? 0 : sum / latencies.length / 1e6))
+            .append(", \"p50\": ").append(number(percentile(latencies, 0.50)))
+            .append(", \"p99\": ").append(number(percentile(latencies, 0.99)))
+            .append(", \"p999\": ").append(number(percentile(latencies, 0.999)))
+            .append(", \"max\": ").append(number(latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6))
+            .append("}}");
+        snapshot.close();
+    }
+
+    private static final class Snapshot implements Closeable {
+        final IndexReader index;
+        final DocStore docs;
+        final String json;
+
+        private Snapshot(IndexReader index, DocStore docs, String json) {
+            this.index = index;
+            this.docs = docs;
+            this.json = json;
+        }
+
+        static Snapshot open(Indexer indexer, Path dir, Search search, SnippetGenerator snippets, String query)
+                throws IOException {
+            long start = System.nanoTime();
+            Main.commitIndex(indexer, dir);
+            double saveSeconds = (System.nanoTime() - start) / 1e9;
+
+            start = System.nanoTime();
+            IndexCommit commit = IndexCommit.openLatest(dir, false);
+            IndexReader index = SegmentIndex.open(commit.file(IndexMerge.SEGMENT));
+            DocStore docs;
+            try {
+                docs = DocStore.open(commit.file(IndexMerge.DOCS));
+            } catch (IOException e) {
+                if (index instanceof SegmentIndex) ((SegmentIndex) index).close();
+                throw e;
+            }
+            double openMs = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            runQuery(search, snippets, index, docs, query);
+            double firstQueryMs = (System.nanoTime() - start) / 1e6;
+            long bytes = Files.size(commit.file(IndexMerge.SEGMENT)) + Files.size(commit.file(IndexMerge.DOCS));
+
+            Logger.info(String.format(Locale.ROOT,
+                    "Snapshot: %d bytes saved in %.2f s, reopened in %.1f ms, first query %.1f ms",
+                    bytes, saveSeconds, openMs, firstQueryMs));
+            return new Snapshot(index, docs, "{\"bytes\": " + bytes + ", \"saveSeconds\": " + number(saveSeconds)
+                    + ", \"openMs\": " + number(openMs) + ", \"firstQueryMs\": " + number(firstQueryMs)
+                    + ", \"lazy\": " + (index instanceof SegmentIndex) + "}");
+        }
+
+        @Override
+        public void close() {
+            try {
+                docs.close();
+                if (index instanceof SegmentIndex) ((SegmentIndex) index).close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private static int runQuery(Search search, SnippetGenerator snippets, IndexReader index, DocStore docs,
+                                String query) {
+        SearchResults results = search.execute(query, index, 10);
+        if (snippets != null && !results.hits().isEmpty()) {
+            List<String> terms = search.queryTerms(query);
+            for (SearchHit hit : results.hits()) {
+                DocStore.StoredDoc doc = docs.get(hit.docId());
+                if (doc != null) snippets.snippet(doc.text(), terms);
+            }
+        }
+        return results.totalHits();
+    }
+
+    private static List<String> loadQueries(Map<String, String> opt, SyntheticSite site) throws IOException {
+        List<String> queries = new ArrayList<>();
+        String file = opt.get("queries");
+        if (!file.isEmpty()) {
+            for (String line : Files.readAllLines(Path.of(file), StandardCharsets.UTF_8)) {
+                int tab = line.lastIndexOf('\t');
+                String q = (tab >= 0 ? line.substring(tab + 1) : line).trim();
+                if (!q.isEmpty() && !q.startsWith("#")) queries.add(q);
+            }
+            Logger.info("Replaying " + queries.size() + " queries from " + file);
+        } else {
+            Random rnd = new Random(Long.parseLong(opt.get("seed")) + 1);
+            int n = integer(opt, "queryCount");
+            for (int i = 0; i < n; i++) queries.add(site.randomQuery(rnd));
+            Logger.info("Replaying " + n + " generated queries");
+        }
+        return queries;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))] / 1e6;
+    }
+
+    private static int integer(Map<String, String> opt, String key) {
+        return Integer.parseInt(opt.get(key));
+    }
+
+    private static double decimal(Map<String, String> opt, String key) {
+        return Double.parseDouble(opt.get(key));
+    }
+
+    private static String number(double v) {
+        return Double.isFinite(v) ? String.format(Locale.ROOT, "%.3f", v) : "null";
+    }
+
+    private static String literal(String s) {
+        if (s.equals("true") || s.equals("false")) return s;
+        try {
+            Double.parseDouble(s);
+            return s;
+        } catch (NumberFormatException e) {
+            return quote(s);
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -1,30 +1,56 @@
 package app;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import crawler.CrawlPolicy;
+import crawler.CsrGraph;
+import crawler.PageManifest;
+import crawler.UrlIndex;
+import search.PageRank;
+import search.ParsedQuery;
+import search.QueryTrace;
 import search.Search;
+import search.SearchHit;
+import search.SearchResults;
+import search.SnippetGenerator;
+import search.Suggester;
+import indexer.Analyzer;
+import indexer.Analyzers;
+import indexer.DocStore;
+import indexer.IndexCommit;
 import indexer.Indexer;
+import indexer.IndexReader;
 import indexer.InvertedIndex;
+import indexer.SegmentIndex;
 import util.Logger;
+import util.Utils;
 
 public class Main {
+    private static final String DEFAULT_SEED = "https://example.com";
+    private static final Set<String> LIST_FLAGS = Set.of(
+            "crawler.seeds", "crawler.include", "crawler.exclude", "crawler.allowedDomains");
+
     private static class Config {
-        final String seedUrl;
-        final int depth;
+        final CrawlPolicy policy;
         final String mode;   
         final String query;  
 
-        Config(String seedUrl, int depth, String mode, String query) {
-            this.seedUrl = seedUrl;
-            this.depth = depth;
+        Config(CrawlPolicy policy, String mode, String query) {
+            this.policy = policy;
             this.mode = mode;
             this.query = query;
         }
@@ -35,7 +61,20 @@ public class Main {
 
         Config cfg = parseArgs(args);
 
+        String existing = System.getProperty("search.index");
+        if (existing != null && !existing.isBlank()) {
+            searchIndex(Path.of(existing.trim()), cfg.query);
+            return;
+        }
+
         boolean multi = isMultiThreadMode(cfg.mode);
+        String role = System.getProperty("crawler.role", "standalone").trim().toLowerCase(Locale.ROOT);
+
+        if (role.equals("worker")) {
+            DistributedCrawl.work(
+                    System.getProperty("crawler.coordinator", "localhost:" + DistributedCrawl.DEFAULT_PORT), multi);
+            return;
+        }
 
         String runId = timestampRunId();
         Path basePagesDir;
@@ -46,64 +85,242 @@ public class Main {
             baseIndexDir = d.indexDir;
         }
 
-        WebCrawlerGermany crawler = crawlSite(cfg.seedUrl, cfg.depth, multi, basePagesDir);
-
-        crawler.saveDiscoveredHosts(baseIndexDir.resolve("hosts.txt").toString());
+        List<Path> pageDirs;
+        CsrGraph graph;
+        Set<String> hosts;
+
+        if (role.equals("coordinator")) {
+            DistributedCrawl.Result result = DistributedCrawl.coordinate(cfg.policy, runId, basePagesDir);
+            if (result == null) return;
+            DistributedCrawl.saveHosts(result.hosts, baseIndexDir.resolve("hosts.txt"));
+            pageDirs = result.pageDirs;
+            graph = result.graph;
+            hosts = result.hosts;
+        } else {
+            WebCrawlerGermany crawler = crawlSite(cfg.policy, multi, basePagesDir);
+            crawler.saveDiscoveredHosts(baseIndexDir.resolve("hosts.txt").toString());
+            crawler.savePageManifest();
+            pageDirs = List.of(basePagesDir);
+            graph = crawler.getLinkGraph().toCsr();
+            hosts = crawler.getDiscoveredHosts();
+        }
 
         Logger.info("Discovered hosts:");
-        for (String host : crawler.getDiscoveredHosts()) {
+        for (String host : hosts) {
             Logger.info(" - " + host);
         }
 
         Indexer indexer = new Indexer();
-        indexPages(indexer, basePagesDir);
+        for (Path dir : pageDirs) {
+            indexPages(indexer, dir);
+        }
+
+        applyPageRank(graph, indexer.getIndex(), baseIndexDir);
+
+        if (Boolean.getBoolean("index.exportText")) {
+            indexer.save(baseIndexDir.resolve("index.txt").toString());
+        }
+        try {
+            commitIndex(indexer, baseIndexDir);
+        } catch (IOException e) {
+            Logger.error("Failed to commit index: " + e.getMessage(), e);
+        }
+
+        runSearchAndReport(indexer.getIndex(), indexer.getDocStore(), indexer.getAnalyzer(), cfg.query, baseIndexDir);
+    }
+
+    static void commitIndex(Indexer indexer, Path indexDir) throws IOException {
+        long gen = IndexCommit.nextGeneration(indexDir);
+        Path segment = IndexCommit.file(indexDir, IndexMerge.SEGMENT, gen);
+        Path docs = IndexCommit.file(indexDir, IndexMerge.DOCS, gen);
+        indexer.saveSegment(segment);
+        indexer.getDocStore().save(docs);
+        IndexCommit.write(indexDir, gen, Map.of(IndexMerge.SEGMENT, segment, IndexMerge.DOCS, docs));
+    }
+
+    private static void searchIndex(Path indexDir, String query) {
+        long start = System.nanoTime();
+        IndexReader idx;
+        DocStore docs;
+        try {
+            IndexCommit commit = IndexCommit.openLatest(indexDir, Boolean.getBoolean("search.verifyOnOpen"));
+            idx = SegmentIndex.open(commit.file(IndexMerge.SEGMENT));
+            Path docsFile = commit.file(IndexMerge.DOCS);
+            docs = docsFile != null ? DocStore.open(docsFile) : new DocStore();
+        } catch (IOException e) {
+            Logger.error("Cannot open index " + indexDir + ": " + e.getMessage(), e);
+            return;
+        }
+        long openMicros = (System.nanoTime() - start) / 1000;
+        long readyAt = System.currentTimeMillis();
 
-        Path indexPath = baseIndexDir.resolve("index.txt");
-        indexer.save(indexPath.toString());
+        runSearchAndReport(idx, docs, analyzerFor(idx), query, indexDir);
+        long firstQueryMicros = (System.nanoTime() - start) / 1000 - openMicros;
+        long readyMs = readyAt - ManagementFactory.getRuntimeMXBean().getStartTime();
 
-        runSearchAndReport(indexer, cfg.query, baseIndexDir);
+        String loading = idx instanceof SegmentIndex ? "lazy" : "full";
+        String cds = sharedArchive();
+        Logger.info("Startup: index opened in " + (openMicros / 1000.0) + " ms (" + loading + " postings), "
+                + "ready " + readyMs + " ms after process start (class sharing: " + cds + "), "
+                + "first query answered in " + (firstQueryMicros / 1000.0) + " ms");
+        recordStartup(indexDir, readyMs, openMicros, firstQueryMicros, idx, loading, cds);
+
+        try {
+            docs.close();
+            if (idx instanceof SegmentIndex) ((SegmentIndex) idx).close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static Analyzer analyzerFor(IndexReader idx) {
+        String stored = idx instanceof SegmentIndex ? ((SegmentIndex) idx).language() : null;
+        if (stored == null) return Analyzers.defaultAnalyzer();
+        String requested = System.getProperty("analyzer.lang");
+        if (requested != null && !Analyzers.language(requested).equals(stored)) {
+            Logger.warn("Index was analyzed as " + stored + "; ignoring analyzer.lang=" + requested);
+        }
+        return Analyzers.forLanguage(stored);
+    }
+
+    private static String sharedArchive() {
+        String[] args = ProcessHandle.current().info().arguments().orElse(new String[0]);
+        for (String a : args) {
+            if (a.startsWith("-XX:SharedArchiveFile")) return "app";
+        }
+        return System.getProperty("java.vm.info", "").contains("sharing") ? "jdk" : "off";
+    }
+
+    private static void recordStartup(Path indexDir, long readyMs, long openMicros, long firstQueryMicros,
+                                      IndexReader idx, String loading, String cds) {
+        Path file = indexDir.resolve("startup.tsv");
+        StringBuilder sb = new StringBuilder();
+        if (!Files.exists(file)) {
+            sb.append("time\treadyMs\topenMs\tfirstQueryMs\tdocs\tterms\tloading\tsharing\n");
+        }
+        sb.append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date())).append('\t')
+          .append(readyMs).append('\t')
+          .append(String.format(Locale.ROOT, "%.3f", openMicros / 1000.0)).append('\t')
+          .append(String.format(Locale.ROOT, "%.3f", firstQueryMicros / 1000.0)).append('\t')
+          .append(idx.totalDocs()).append('\t')
+          .append(idx.terms().size()).append('\t')
+          .append(loading).append('\t')
+          .append(cds).append('\n');
+        try {
+            Files.writeString(file, sb, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            Logger.warn("Cannot record startup time in " + file + ": " + e.getMessage());
+        }
     }
 
     private static Config parseArgs(String[] args) {
-        String seedUrl = "https://example.com";
-        int depth = 1;
         String mode = "s";
         String query = "example";
 
-        try {
-            if (args.length >= 1 && args[0] != null && !args[0].isBlank()) {
-                seedUrl = args[0];
+        Properties flags = new Properties();
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg == null || arg.isBlank()) continue;
+            if (arg.startsWith("--")) {
+                addFlag(flags, arg.substring(2));
+            } else {
+                positional.add(arg);
             }
+        }
 
-            if (args.length >= 2 && args[1] != null && !args[1].isBlank()) {
-                try {
-                    depth = Integer.parseInt(args[1].trim());
-                    if (depth < 1) {
-                        Logger.warn("Depth < 1; using default depth = 1");
-                        depth = 1;
-                    }
-                } catch (NumberFormatException e) {
-                    Logger.warn("Invalid depth value; using default depth = 1");
+        String configFile = flags.getProperty("crawler.config", System.getProperty("crawler.config"));
+        if (configFile != null && !configFile.isBlank()) {
+            loadConfigFile(Path.of(configFile.trim()));
+        }
+
+        if (positional.size() >= 1) {
+            String seeds = flags.getProperty("crawler.seeds", System.getProperty("crawler.seeds"));
+            flags.setProperty("crawler.seeds",
+                    seeds == null || seeds.isBlank() ? positional.get(0) : positional.get(0) + " " + seeds);
+        }
+
+        if (positional.size() >= 2 && !flags.containsKey("crawler.maxDepth")) {
+            try {
+                int depth = Integer.parseInt(positional.get(1).trim());
+                if (depth < 1) {
+                    Logger.warn("Depth < 1; using default depth = 1");
                     depth = 1;
                 }
+                flags.setProperty("crawler.maxDepth", String.valueOf(depth));
+            } catch (NumberFormatException e) {
+                Logger.warn("Invalid depth value; using default depth = 1");
+                flags.setProperty("crawler.maxDepth", "1");
             }
+        }
 
-            if (args.length >= 3 && args[2] != null && !args[2].isBlank()) {
-                mode = args[2];
-            }
+        if (positional.size() >= 3) {
+            mode = positional.get(2);
+        }
 
-            if (args.length >= 4 && args[3] != null && !args[3].isBlank()) {
-                query = args[3];
-            }
+        if (positional.size() >= 4) {
+            query = positional.get(3);
+        }
 
-        } catch (Exception e) {
-            Logger.warn("Error parsing arguments, falling back to defaults.");
+        mode = flags.getProperty("crawler.mode", System.getProperty("crawler.mode", mode)).trim();
+        query = flags.getProperty("crawler.query", System.getProperty("crawler.query", query));
+        flags.remove("crawler.mode");
+        flags.remove("crawler.query");
+        flags.remove("crawler.config");
+
+        for (String key : flags.stringPropertyNames()) {
+            System.setProperty(key, flags.getProperty(key));
+        }
+
+        CrawlPolicy policy = CrawlPolicy.fromSystemProperties();
+        if (policy.seeds().isEmpty()) {
+            System.setProperty("crawler.seeds", DEFAULT_SEED);
+            policy = CrawlPolicy.fromSystemProperties();
         }
 
-        return new Config(seedUrl, depth, mode, query);
+        return new Config(policy, mode, query);
     }
 
-    private static boolean isMultiThreadMode(String mode) {
+    private static void addFlag(Properties flags, String flag) {
+        int eq = flag.indexOf('=');
+        String key = propertyName(eq < 0 ? flag : flag.substring(0, eq));
+        String value = eq < 0 ? "true" : flag.substring(eq + 1);
+
+        String prev = flags.getProperty(key);
+        if (prev != null && LIST_FLAGS.contains(key)) {
+            value = prev + " " + value;
+        }
+        flags.setProperty(key, value);
+    }
+
+    private static String propertyName(String key) {
+        String k = key.trim();
+        if (k.equals("seed")) return "crawler.seeds";
+        if (k.equals("depth")) return "crawler.maxDepth";
+        if (k.equals("index")) return "search.index";
+        if (k.equals("explain")) return "search.explain";
+        if (k.equals("exportText")) return "index.exportText";
+        return k.indexOf('.') >= 0 ? k : "crawler." + k;
+    }
+
+    private static void loadConfigFile(Path file) {
+        Properties props = new Properties();
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(r);
+        } catch (IOException e) {
+            Logger.error("Failed to read config file " + file + ": " + e.getMessage(), e);
+            return;
+        }
+
+        for (String key : props.stringPropertyNames()) {
+            String name = propertyName(key);
+            if (System.getProperty(name) == null) {
+                System.setProperty(name, props.getProperty(key).trim());
+            }
+        }
+        Logger.info("Loaded crawl configuration from " + file);
+    }
+
+    static boolean isMultiThreadMode(String mode) {
         return mode.equalsIgnoreCase("m")
             || mode.equalsIgnoreCase("multi")
             || mode.equalsIgnoreCase("mt");
@@ -143,19 +360,19 @@ public class Main {
         return new Dirs(pagesDir, indexDir);
     }
 
-    private static WebCrawlerGermany crawlSite(String seedUrl,
-                                               int depth,
+    private static WebCrawlerGermany crawlSite(CrawlPolicy policy,
                                                boolean multi,
                                                Path pagesDir) {
 
-        WebCrawlerGermany crawler = new WebCrawlerGermany(pagesDir, multi);
-        crawler.crawl(seedUrl, depth);
+        WebCrawlerGermany crawler = new WebCrawlerGermany(pagesDir, multi, policy);
+        crawler.crawl(policy.seeds(), policy.maxDepth());
         return crawler;
     }
 
-    private static void indexPages(Indexer indexer, Path pagesDir) {
+    static void indexPages(Indexer indexer, Path pagesDir) {
         try {
             java.io.File[] pageFiles = pagesDir.toFile().listFiles();
+            PageManifest manifest = PageManifest.load(pagesDir);
 
             if (pageFiles == null) {
                 Logger.warn("Pages directory is missing or not a directory: " + pagesDir);
@@ -174,15 +391,16 @@ public class Main {
                         continue;
                     }
 
-                    StringBuilder sb = new StringBuilder(4096);
-                    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            sb.append(line).append('\n');
-                        }
+                    byte[] raw = Files.readAllBytes(file.toPath());
+                    long crc = manifest.checksumFor(file.getName());
+                    if (crc >= 0 && Utils.crc32c(raw) != crc) {
+                        Logger.warn("Skipping damaged page " + file.getName() + " (checksum mismatch)");
+                        continue;
                     }
 
-                    indexer.addPage(file.getName(), sb.toString());
+                    String url = manifest.urlFor(file.getName());
+                    indexer.addPage(file.getName(), url, new String(raw, StandardCharsets.UTF_8), manifest.anchorTextFor(url),
+                            file.lastModified(), raw.length);
 
                 } catch (Exception e) {
                     Logger.warn("Error reading page file " + file.getName() + ": " + e.getMessage());
@@ -194,38 +412,114 @@ public class Main {
         }
     }
 
-    private static void runSearchAndReport(Indexer indexer,
+    private static void applyPageRank(CsrGraph graph, InvertedIndex idx, Path indexDir) {
+        Logger.info("Link graph: " + graph.nodeCount() + " nodes, " + graph.edgeCount() + " edges");
+
+        try {
+            graph.save(indexDir.resolve("graph.bin"));
+        } catch (IOException e) {
+            Logger.error("Failed to save link graph: " + e.getMessage(), e);
+        }
+
+        double[] rank = new PageRank().compute(graph);
+        UrlIndex nodeByUrl = graph.urlIndex();
+        for (int doc = 0; doc < idx.totalDocs(); doc++) {
+            String url = idx.docUrl(doc);
+            int node = url == null ? -1 : nodeByUrl.get(url);
+            if (node >= 0) {
+                idx.setStaticScore(doc, (float) (rank[node] * graph.nodeCount()));
+            }
+        }
+    }
+
+    private static void runSearchAndReport(IndexReader idx,
+                                           DocStore docs,
+                                           Analyzer analyzer,
                                            String query,
                                            Path indexDir) {
 
-        Search search = new Search();
-        InvertedIndex idx = indexer.getIndex();
-        List<String> ranked = search.search(query, idx);
+        Search search = new Search(analyzer);
+        QueryTrace trace = Boolean.getBoolean("search.explain") ? new QueryTrace(query) : null;
+        SearchResults results = search.execute(query, idx, 10, trace);
+        List<SearchHit> ranked = results.hits();
 
         Logger.info("Indexed words: " + idx.terms().size());
         Logger.info("Documents: " + idx.totalDocs());
         Logger.info("Query: " + query);
 
-        int limit = Math.min(10, ranked.size());
+        long start = System.nanoTime();
+        SnippetGenerator snippets = new SnippetGenerator(analyzer);
+        List<String> terms = search.queryTerms(query);
+        List<String> lines = new ArrayList<>(ranked.size() * 3);
+        for (int i = 0; i < ranked.size(); i++) {
+            SearchHit hit = ranked.get(i);
+            DocStore.StoredDoc doc = docs.get(hit.docId());
+            String title = doc == null || doc.title() == null || doc.title().isEmpty() ? hit.name() : doc.title();
+            String url = hit.url() != null ? hit.url() : hit.name();
+            lines.add((i + 1) + ". " + title);
+            lines.add("   " + url);
+            lines.add("   " + (doc == null ? "" : snippets.snippet(doc.text(), terms)));
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+
+        if (!results.hostFacets().isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            int shown = 0;
+            for (Map.Entry<String, Integer> e : results.hostFacets().entrySet()) {
+                if (shown++ == 10) break;
+                if (sb.length() > 0) sb.append(", ");
+                sb.append(e.getKey()).append(" (").append(e.getValue()).append(')');
+            }
+            Logger.info("Hits by host: " + sb);
+        }
+
+        Logger.info("Top results (" + ranked.size() + " of " + results.totalHits() + "):");
+        for (String line : lines) {
+            Logger.info(line);
+        }
+        Logger.info("Snippets built in " + (micros / 1000.0) + " ms");
+        if (trace != null) {
+            for (String line : trace.explain().split("\n")) {
+                Logger.info(line);
+            }
+        }
 
-        Logger.info("Top results (" + limit + "):");
-        for (int i = 0; i < limit; i++) {
-            Logger.info((i + 1) + ". " + ranked.get(i));
+        if (ranked.isEmpty()) {
+            ParsedQuery parsed = ParsedQuery.parse(query);
+            reportSuggestions(idx, analyzer, parsed.text(), parsed.hasFilters());
         }
 
-        writeLastSearchFile(indexDir, query, ranked, limit);
+        writeLastSearchFile(indexDir, query, lines);
+    }
+
+    private static void reportSuggestions(IndexReader idx, Analyzer analyzer, String query, boolean filtered) {
+        Suggester suggester = Suggester.forIndex(idx);
+        String[] words = query.toLowerCase(Locale.ROOT).split("\\s+");
+
+        analyzer.analyze(query, (word, term) -> {
+            if (filtered && idx.docFreq(term) > 0) return;
+            List<String> fuzzy = suggester.suggest(term, 5);
+            if (!fuzzy.isEmpty()) {
+                Logger.info("Did you mean (" + word + "): " + String.join(", ", fuzzy));
+            }
+        });
+
+        String last = words.length == 0 ? "" : analyzer.fold(words[words.length - 1]);
+        List<String> completions = suggester.complete(last, 5);
+        if (!completions.isEmpty()) {
+            Logger.info("Completions (" + last + "): " + String.join(", ", completions));
+        }
     }
 
     private static void writeLastSearchFile(Path indexDir,
                                             String query,
-                                            List<String> ranked,
-                                            int limit) {
+                                            List<String> lines) {
         Path outFile = indexDir.resolve("last_search.txt");
 
         try (BufferedWriter out = Files.newBufferedWriter(outFile, StandardCharsets.UTF_8)) {
             out.write("Query: " + query + "\n");
-            for (int i = 0; i < limit; i++) {
-                out.write((i + 1) + ". " + ranked.get(i) + "\n");
+            for (String line : lines) {
+                out.write(line + "\n");
             }
         } catch (IOException e) {
             Logger.error("Failed to write last_search.txt: " + e.getMessage(), e);
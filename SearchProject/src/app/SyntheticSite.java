@@ -0,0 +1,229 @@
+package app;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public final class SyntheticSite implements AutoCloseable {
+
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mer", "sta", "dan", "ri", "vol", "ben", "tu", "gar", "hel", "ost",
+        "win", "pra", "lek", "sun", "bar", "mi", "tor", "en", "fal", "ges", "nu", "kro"
+    };
+
+    private final int pages;
+    private final int fanOut;
+    private final int pageBytes;
+    private final double sizeSigma;
+    private final int latencyMs;
+    private final int jitterMs;
+    private final double errorRate;
+    private final double missingRate;
+    private final long seed;
+    private final String[] vocabulary;
+    private final double[] zipf;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public SyntheticSite(int pages, int fanOut, int pageBytes, double sizeSigma, int latencyMs, int jitterMs,
+                         double errorRate, double missingRate, int vocabularySize, long seed) {
+        this.pages = Math.max(1, pages);
+        this.fanOut = Math.max(1, fanOut);
+        this.pageBytes = Math.max(256, pageBytes);
+        this.sizeSigma = Math.max(0.0, sizeSigma);
+        this.latencyMs = Math.max(0, latencyMs);
+        this.jitterMs = Math.max(0, jitterMs);
+        this.errorRate = Math.max(0.0, Math.min(1.0, errorRate));
+        this.missingRate = Math.max(0.0, Math.min(1.0, missingRate));
+        this.seed = seed;
+        this.vocabulary = buildVocabulary(Math.max(16, vocabularySize), seed);
+        this.zipf = zipfTable(vocabulary.length);
+    }
+
+    public void start(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 128);
+        executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String seedUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/p/0";
+    }
+
+    @Override
+    public void close() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+        try {
+            if (executor != null) executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int pages() {
+        return pages;
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long bytesServed() {
+        return bytesServed.get();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long notFound() {
+        return notFound.get();
+    }
+
+    public String randomQuery(Random rnd) {
+        int terms = 1 + rnd.nextInt(3);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(word(rnd));
+        }
+        return sb.toString();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            requests.incrementAndGet();
+            ex.getRequestBody().readAllBytes();
+            String path = ex.getRequestURI().getPath();
+            sleep();
+
+            if (path.equals("/robots.txt")) {
+                send(ex, 200, "text/plain", "User-agent: *\nDisallow:\n");
+                return;
+            }
+            int page = pageOf(path);
+            if (page < 0 || isMissing(page)) {
+                notFound.incrementAndGet();
+                send(ex, 404, "text/plain", "not found\n");
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                send(ex, 503, "text/plain", "try again\n");
+                return;
+            }
+            send(ex, 200, "text/html; charset=utf-8", render(page));
+        }
+    }
+
+    private void sleep() {
+        long ms = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextInt(jitterMs + 1) : 0);
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(HttpExchange ex, int status, String type, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", type);
+        if (ex.getRequestMethod().equalsIgnoreCase("HEAD")) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+        bytesServed.addAndGet(bytes.length);
+    }
+
+    private int pageOf(String path) {
+        if (!path.startsWith("/p/")) return -1;
+        try {
+            int n = Integer.parseInt(path.substring(3));
+            return n >= 0 && n < pages ? n : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean isMissing(int page) {
+        return page != 0 && missingRate > 0 && new Random(seed * 31 + page).nextDouble() < missingRate;
+    }
+
+    private String render(int page) {
+        Random rnd = new Random(seed ^ (page * 0x9E3779B97F4A7C15L));
+        long target = Math.round(pageBytes * Math.exp(sizeSigma * rnd.nextGaussian() - sizeSigma * sizeSigma / 2));
+        target = Math.max(256, Math.min(target, pageBytes * 16L));
+
+        StringBuilder sb = new StringBuilder((int) target + 256);
+        String title = word(rnd) + " " + word(rnd) + " " + page;
+        sb.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>").append(title)
+          .append("</title></head><body><h1>").append(title).append("</h1>\n<ul>");
+        for (int i = 0; i < fanOut; i++) {
+            int link = i == 0 ? (page + 1) % pages : rnd.nextInt(pages);
+            sb.append("<li><a href=\"/p/").append(link).append("\">")
+              .append(word(rnd)).append(' ').append(word(rnd)).append("</a></li>");
+        }
+        sb.append("</ul>\n<p>");
+        while (sb.length() < target) {
+            sb.append(word(rnd));
+            sb.append(rnd.nextInt(12) == 0 ? ".</p>\n<p>" : " ");
+        }
+        sb.append("</p></body></html>\n");
+        return sb.toString();
+    }
+
+    private String word(Random rnd) {
+        int i = Arrays.binarySearch(zipf, rnd.nextDouble());
+        if (i < 0) i = -i - 1;
+        return vocabulary[Math.min(i, vocabulary.length - 1)];
+    }
+
+    private static String[] buildVocabulary(int size, long seed) {
+        Random rnd = new Random(seed);
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < size) {
+            int parts = 2 + rnd.nextInt(3);
+            StringBuilder w = new StringBuilder();
+            for (int i = 0; i < parts; i++) w.append(SYLLABLES[rnd.nextInt(SYLLABLES.length)]);
+            words.add(w.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    private static double[] zipfTable(int n) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / (i + 1);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) cdf[i] /= sum;
+        return cdf;
+    }
+}
@@ -1,25 +1,41 @@
 package app;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import crawler.CanonicalUrl;
+import crawler.CrawlBudget;
+import crawler.CrawlFrontier;
+import crawler.CrawlPolicy;
+import crawler.DnsCache;
+import crawler.FetchPolicy;
+import crawler.FetchResult;
+import crawler.HostCircuitBreaker;
+import crawler.Link;
+import crawler.LinkGraph;
+import crawler.LinkRouter;
 import crawler.PageDownloader;
+import crawler.PageManifest;
+import crawler.RobotsCache;
+import crawler.SitemapLoader;
 import crawler.LinkExtractor;
 import crawler.SimpleLinkExtractor;
+import crawler.UrlCanonicalizer;
 import util.Utils;
 import util.Logger;
 
 public class WebCrawlerGermany {
 
-    private static final int MAX_PAGES = 200;
-
     private static final AtomicInteger THREAD_SEQ = new AtomicInteger(1);
 
     private final Set<String> visitedLinks =
@@ -30,20 +46,48 @@ public class WebCrawlerGermany {
 
     private final PageDownloader downloader = new PageDownloader();
     private final LinkExtractor extractor = new SimpleLinkExtractor();
+    private final UrlCanonicalizer canonicalizer = UrlCanonicalizer.fromSystemProperties();
+    private final PageManifest manifest = new PageManifest();
+    private final LinkGraph linkGraph = new LinkGraph();
+    private final RobotsCache robots;
+    private final SitemapLoader sitemaps = new SitemapLoader(downloader);
+    private final DnsCache dns = DnsCache.fromSystemProperties();
+    private final FetchPolicy fetchPolicy = FetchPolicy.fromSystemProperties(downloader, dns);
+    private final AtomicIntegerArray outcomes = new AtomicIntegerArray(FetchResult.Outcome.values().length);
+    private final boolean respectRobots = Boolean.parseBoolean(System.getProperty("crawler.robots", "true"));
+    private final boolean useSitemaps = Boolean.parseBoolean(System.getProperty("crawler.sitemaps", "true"));
 
     private final Path pagesDir;
     private final boolean multiThread;
-
-    private final ExecutorService executor;
-    private final Phaser phaser;
+    private final int threads;
+    private final int maxPages;
+    private final CrawlPolicy policy;
+    private final CrawlBudget budget;
+    private final CrawlFrontier frontier;
 
     private final AtomicInteger pageCounter = new AtomicInteger(0);
+    private final AtomicBoolean stopped = new AtomicBoolean();
 
-    private volatile String baseDomain;
+    private volatile List<String> scopeDomains = Collections.emptyList();
+    private volatile int maxDepth;
+    private volatile LinkRouter router;
+    private volatile boolean seeded;
 
     public WebCrawlerGermany(Path pagesDir, boolean multiThread) {
+        this(pagesDir, multiThread, CrawlPolicy.fromSystemProperties());
+    }
+
+    public WebCrawlerGermany(Path pagesDir, boolean multiThread, CrawlPolicy policy) {
         this.pagesDir = pagesDir;
         this.multiThread = multiThread;
+        this.policy = policy;
+        this.maxPages = policy.maxPages();
+        this.budget = new CrawlBudget(policy);
+        this.frontier = new CrawlFrontier(policy.maxPagesPerHost());
+        this.robots = new RobotsCache(
+                downloader,
+                PageDownloader.robotsAgent(),
+                intProperty("crawler.minDelayMs", 0));
 
         try {
             java.nio.file.Files.createDirectories(this.pagesDir);
@@ -54,125 +98,90 @@ public class WebCrawlerGermany {
         if (multiThread) {
             int cpus = Math.max(1, Runtime.getRuntime().availableProcessors());
             int defaultThreads = Math.max(2, cpus * 2);
-
-            int threads = defaultThreads;
-            try {
-                threads = Integer.parseInt(System.getProperty("crawler.threads", String.valueOf(defaultThreads)));
-            } catch (NumberFormatException ignore) {
-            }
-
-            this.executor = Executors.newFixedThreadPool(
-                    threads,
-                    r -> {
-                        Thread t = new Thread(r, "crawler-" + THREAD_SEQ.getAndIncrement());
-                        t.setDaemon(true);
-                        return t;
-                    }
-            );
-
-            this.phaser = new Phaser(1);
+            this.threads = policy.threads() > 0 ? policy.threads() : defaultThreads;
         } else {
-            this.executor = null;
-            this.phaser = null;
+            this.threads = 1;
         }
     }
 
-    public void crawl(String url, int depth) {
-        if (depth <= 0 || url == null || url.isEmpty()) {
-            Logger.warn("Invalid crawl request (url=" + url + ", depth=" + depth + ")");
-            return;
+    private static int intProperty(String name, int def) {
+        try {
+            return Integer.parseInt(System.getProperty(name, String.valueOf(def)).trim());
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid value for " + name + "; using " + def);
+            return def;
         }
+    }
 
-        initBaseDomainIfNeeded(url);
-        if (baseDomain == null) {
-            Logger.warn("Invalid seed URL (baseDomain unresolved): " + url);
-            if (executor != null) executor.shutdownNow();
+    public void crawl(String url, int depth) {
+        crawl(url == null ? Collections.emptyList() : Collections.singletonList(url), depth);
+    }
+
+    public void crawl(List<String> seedUrls, int depth) {
+        if (depth <= 0 || seedUrls == null || seedUrls.isEmpty()) {
+            Logger.warn("Invalid crawl request (seeds=" + seedUrls + ", depth=" + depth + ")");
             return;
         }
 
-        if (multiThread) {
-            crawlMulti(url, depth);
-
-            try {
-                phaser.arriveAndAwaitAdvance();
-            } catch (Exception e) {
-                Logger.warn("Interrupted while waiting for tasks: " + e.getMessage());
-                Thread.currentThread().interrupt();
-            } finally {
-                try {
-                    phaser.arriveAndDeregister();
-                } catch (Exception ignore) {
-                }
+        List<CanonicalUrl> seeds = new ArrayList<>();
+        for (String url : seedUrls) {
+            CanonicalUrl seed = canonicalizer.canonicalize(url);
+            if (seed == null) {
+                Logger.warn("Invalid seed URL: " + url);
+            } else {
+                seeds.add(seed);
             }
+        }
+        if (seeds.isEmpty()) return;
 
-            if (executor != null) {
-                executor.shutdown();
-                try {
-                    executor.awaitTermination(60, TimeUnit.SECONDS);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                }
+        if (policy.allowedDomains().isEmpty()) {
+            List<String> domains = new ArrayList<>();
+            for (CanonicalUrl seed : seeds) {
+                if (!domains.contains(seed.siteHost())) domains.add(seed.siteHost());
             }
-
-            Logger.info("Finished crawling. Total pages: " + pageCounter.get());
-
+            scopeDomains = domains;
         } else {
-            crawlSingle(url, depth);
-            Logger.info("Finished crawling. Total pages: " + pageCounter.get());
+            scopeDomains = policy.allowedDomains();
         }
-    }
 
-    private void initBaseDomainIfNeeded(String url) {
-        if (this.baseDomain != null) return;
-        try {
-            URI uri = new URI(url);
-            String host = uri.getHost();
-            if (host != null && host.startsWith("www.")) {
-                host = host.substring(4);
-            }
-            this.baseDomain = host;
-        } catch (Exception e) {
-            Logger.warn("Invalid seed URL: " + url);
-        }
-    }
+        this.maxDepth = depth;
+        Logger.info("Crawl policy: " + policy);
+        budget.start();
 
-    private static String normalizeUrl(String rawUrl) {
-        if (rawUrl == null) return null;
-        try {
-            URI u = new URI(rawUrl);
-            if (u.getHost() == null) {
-                return rawUrl;
+        for (CanonicalUrl seed : seeds) {
+            if (!inScope(seed)) {
+                Logger.warn("Seed URL outside of crawl scope: " + seed);
+                continue;
             }
-
-            String scheme = (u.getScheme() == null)
-                    ? "http"
-                    : u.getScheme().toLowerCase(Locale.ROOT);
-
-            String host = u.getHost().toLowerCase(Locale.ROOT);
-
-            int port = u.getPort();
-            if ((scheme.equals("http") && port == 80) ||
-                (scheme.equals("https") && port == 443)) {
-                port = -1;
+            enqueue(seed, 0);
+            if (isLocal(seed) && addHost(seed)) {
+                seedFromSitemaps(seed.url());
             }
+        }
+        seeded = true;
 
-            String path = u.getPath();
-            if (path == null || path.isEmpty()) path = "/";
-
-            String query = u.getQuery();
-
-            URI norm = new URI(scheme, null, host, port, path, query, null);
-            String s = norm.toString();
-
-            if (s.endsWith("/") && !"/".equals(path)) {
-                s = s.substring(0, s.length() - 1);
-            }
+        if (multiThread) {
+            crawlMulti();
+        } else {
+            crawlSingle();
+        }
+        Logger.info("Finished crawling. Total pages: " + pageCounter.get());
+        Logger.info("Transferred " + downloader.wireBytes() + " bytes on the wire, "
+                + downloader.decodedBytes() + " bytes decoded");
+        logOutcomes();
+        Logger.info("DNS cache holds " + dns.size() + " hosts");
+        dns.shutdown();
+    }
 
-            return s;
-        } catch (Exception e) {
-            return rawUrl;
+    private void logOutcomes() {
+        StringBuilder sb = new StringBuilder("Fetch outcomes:");
+        for (FetchResult.Outcome o : FetchResult.Outcome.values()) {
+            int n = outcomes.get(o.ordinal());
+            if (n > 0) sb.append(' ').append(o).append('=').append(n);
         }
+        Logger.info(sb.toString());
     }
+
     private boolean tryVisitAndReserve(String url) {
       
         if (!visitedLinks.add(url)) {
@@ -183,7 +192,7 @@ public class WebCrawlerGermany {
         while (true) {
             int curr = pageCounter.get();
 
-            if (curr >= MAX_PAGES) {
+            if (curr >= maxPages) {
                  
                 visitedLinks.remove(url);
                 return false;
@@ -198,139 +207,274 @@ public class WebCrawlerGermany {
          
         }
 
-        if (after % 10 == 0 || after == MAX_PAGES) {
-            Logger.info("Visited " + after + " / " + MAX_PAGES + " pages...");
+        if (after % 10 == 0 || after == maxPages) {
+            Logger.info("Visited " + after + " / " + maxPages + " pages...");
         }
 
         return true;
     }
 
-    private void crawlSingle(String rawUrl, int depth) {
-        if (depth <= 0 || rawUrl == null || rawUrl.isEmpty()) return;
+    private void crawlSingle() {
+        runWorker();
+    }
+
+    private void crawlMulti() {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threads,
+                r -> {
+                    Thread t = new Thread(r, "crawler-" + THREAD_SEQ.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(this::runWorker);
+        }
+        executor.shutdown();
+
+        try {
+            while (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                Logger.info("Still crawling: " + pageCounter.get() + " pages, " + frontier.size() + " queued");
+            }
+        } catch (InterruptedException ie) {
+            frontier.close();
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            CrawlFrontier.Entry entry;
+            try {
+                entry = frontier.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == null) return;
 
-        String url = normalizeUrl(rawUrl);
-        if (!isUrlInSameDomain(url)) return;
-        if (!tryVisitAndReserve(url)) return;
+            try {
+                if (budget.timeExpired()) {
+                    stopCrawl("time budget of " + policy.maxDurationMillis() + " ms exhausted");
+                    continue;
+                }
+                if (budget.hostExhausted(entry.host())) continue;
+                if (respectRobots && !robots.isAllowed(entry.url())) {
+                    Logger.debug("Blocked by robots.txt: " + entry.url());
+                    continue;
+                }
+                if (!tryVisitAndReserve(entry.url())) {
+                    if (pageCounter.get() >= maxPages) frontier.close();
+                    continue;
+                }
+                processUrl(entry);
+            } catch (Exception e) {
+                Logger.error("Unhandled error in task for " + entry.url() + ": " + e.getMessage(), e);
+            } finally {
+                frontier.complete(entry);
+            }
+        }
+    }
 
-        addHost(url);
-        Logger.info("Crawling: " + url);
+    private void processUrl(CrawlFrontier.Entry entry) throws InterruptedException {
+        String url = entry.url();
+        if (addHost(canonicalizer.canonicalize(url))) {
+            seedFromSitemaps(url);
+        }
+        if (respectRobots) {
+            robots.awaitTurn(url);
+        }
+        Logger.info("Crawling: " + url + " (depth " + entry.depth() + ")");
+
+        long started = System.nanoTime();
+        FetchResult result = fetchPolicy.fetch(url, entry.host());
+        outcomes.incrementAndGet(result.outcome().ordinal());
+        if (budget.record(entry.host(), result.bodyBytes(), (System.nanoTime() - started) / 1_000_000)) {
+            Logger.info("Budget for host " + entry.host() + " exhausted; dropping its queued URLs");
+            frontier.dropHost(entry.host());
+        }
+        if (budget.bytesExhausted()) {
+            stopCrawl("byte budget of " + policy.maxBytes() + " bytes exhausted");
+        }
+        if (!result.isOk()) {
+            handleFailure(entry, result);
+            return;
+        }
 
-        String html = downloader.download(url);
+        String html = result.html();
         if (html == null || html.isEmpty()) return;
 
         savePage(url, html);
+        recordAnchors(html, url);
 
-        List<String> links = extractor.extractLinks(html, url);
-        Logger.info("Extracted links: " + links.size() + " from " + url);
+        List<CanonicalUrl> links = outlinks(html, url);
 
-        for (String link : links) {
-            if (pageCounter.get() >= MAX_PAGES) break;
+        int nextDepth = entry.depth() + 1;
+        if (nextDepth >= maxDepth) return;
+
+        for (CanonicalUrl link : links) {
+            enqueue(link, nextDepth);
+        }
+    }
 
-            String norm = normalizeUrl(link);
+    private void handleFailure(CrawlFrontier.Entry entry, FetchResult result) {
+        String url = entry.url();
 
-            if (Utils.isNonHtmlResource(norm) && !norm.endsWith("/")) continue;
+        if (result.outcome() == FetchResult.Outcome.CIRCUIT_OPEN) {
+            long until = fetchPolicy.parkedUntil(entry.host());
+            releaseReservation(url);
+            if (until < 0) {
+                frontier.dropHost(entry.host());
+                return;
+            }
+            frontier.defer(entry, Math.max(until, System.currentTimeMillis() + 1000), false);
+            return;
+        }
 
-            if (!isUrlInSameDomain(norm)) continue;
+        long delay = fetchPolicy.retryDelayMillis(result, entry.attempt());
+        if (delay >= 0) {
+            Logger.info("Retrying " + url + " in " + delay + " ms after " + result);
+            releaseReservation(url);
+            frontier.defer(entry, System.currentTimeMillis() + delay, true);
+            return;
+        }
 
-            crawlSingle(norm, depth - 1);
+        Logger.debug("Giving up on " + url + ": " + result);
+        if (fetchPolicy.breaker().state(entry.host()) == HostCircuitBreaker.State.DEAD) {
+            frontier.dropHost(entry.host());
         }
     }
 
-    private void crawlMulti(String seedUrl, int depth) {
-        submitUrl(seedUrl, depth);
+    public void setRouter(LinkRouter router) {
+        this.router = router;
+        frontier.setKeepAlive(router != null);
     }
 
-    private void submitUrl(String rawUrl, int depth) {
-        if (depth <= 0 || rawUrl == null || rawUrl.isEmpty()) return;
+    public void receive(String url, int depth) {
+        CanonicalUrl c = canonicalizer.canonicalize(url);
+        if (!inScope(c)) return;
+        dns.prefetch(c.host());
+        frontier.offer(c.url(), c.host(), depth);
+    }
 
-        final String url = normalizeUrl(rawUrl);
-        if (!isUrlInSameDomain(url)) return;
-        if (!tryVisitAndReserve(url)) return;
+    public void stop() {
+        frontier.close();
+    }
 
-        Runnable task = () -> {
-            try {
-                processUrl(url, depth);
-            } catch (Exception e) {
-                Logger.error("Unhandled error in task for " + url + ": " + e.getMessage(), e);
-            } finally {
-                try {
-                    phaser.arriveAndDeregister();
-                } catch (Exception ignore) {
-                }
-            }
-        };
+    public boolean isIdle() {
+        return seeded && frontier.isIdle();
+    }
 
-        phaser.register();
-        try {
-            executor.submit(task);
-        } catch (RejectedExecutionException rex) {
-            try {
-                phaser.arriveAndDeregister();
-            } catch (Exception ignore) {
-            }
-            Logger.warn("Task rejected for url " + url + ": " + rex.getMessage());
+    public int pagesCrawled() {
+        return pageCounter.get();
+    }
+
+    public int queued() {
+        return frontier.size();
+    }
+
+    public long bytesFetched() {
+        return budget.bytes();
+    }
+
+    private boolean isLocal(CanonicalUrl url) {
+        LinkRouter r = router;
+        return r == null || r.isLocal(url.host());
+    }
+
+    private boolean enqueue(CanonicalUrl url, int depth) {
+        LinkRouter r = router;
+        if (r != null && !r.isLocal(url.host())) {
+            r.forward(url.url(), url.host(), depth);
+            return false;
         }
+        dns.prefetch(url.host());
+        return frontier.offer(url.url(), url.host(), depth);
     }
 
-    private void processUrl(String url, int depth) {
-        addHost(url);
-        Logger.info("Crawling: " + url);
+    private void stopCrawl(String reason) {
+        if (stopped.compareAndSet(false, true)) {
+            Logger.info("Stopping crawl: " + reason);
+        }
+        frontier.close();
+    }
 
-        String html = downloader.download(url);
-        if (html == null || html.isEmpty()) return;
+    private void releaseReservation(String url) {
+        if (visitedLinks.remove(url)) {
+            pageCounter.decrementAndGet();
+        }
+    }
 
-        savePage(url, html);
+    private void seedFromSitemaps(String url) {
+        if (!useSitemaps || maxDepth < 2) return;
+
+        List<String> sources = new ArrayList<>(robots.rulesFor(url).sitemaps());
+        if (sources.isEmpty()) {
+            try {
+                sources.add(new URI(url).resolve("/sitemap.xml").toString());
+            } catch (Exception e) {
+                return;
+            }
+        }
 
+        int added = 0;
+        for (String loc : sitemaps.load(sources, maxPages * 10)) {
+            CanonicalUrl c = canonicalizer.canonicalize(loc);
+            if (!inScope(c)) continue;
+            if (enqueue(c, 1)) added++;
+        }
+        if (added > 0) {
+            Logger.info("Seeded " + added + " URLs from sitemaps of " + url);
+        }
+    }
+
+    private List<CanonicalUrl> outlinks(String html, String url) {
         List<String> links = extractor.extractLinks(html, url);
         Logger.info("Extracted links: " + links.size() + " from " + url);
 
+        List<CanonicalUrl> out = new ArrayList<>(links.size());
+        List<String> targets = new ArrayList<>(links.size());
         for (String link : links) {
-            if (pageCounter.get() >= MAX_PAGES) break;
+            CanonicalUrl c = canonicalizer.canonicalize(link);
+            if (!inScope(c)) continue;
 
-            String norm = normalizeUrl(link);
+            if (Utils.isNonHtmlResource(c.url()) && !c.url().endsWith("/")) continue;
 
-            if (Utils.isNonHtmlResource(norm) && !norm.endsWith("/")) continue;
+            if (dns.isKnownUnresolvable(c.host())) continue;
 
-            if (!isUrlInSameDomain(norm)) continue;
-
-            if (depth - 1 > 0) {
-                submitUrl(norm, depth - 1);
-            }
+            out.add(c);
+            targets.add(c.url());
         }
+
+        linkGraph.addEdges(url, targets);
+        return out;
     }
 
-    private void addHost(String url) {
-        try {
-            URI u = new URI(url);
-            String host = u.getHost();
-            if (host != null) {
-                if (host.startsWith("www.")) host = host.substring(4);
-                host = host.toLowerCase(Locale.ROOT);
-                if (isSameDomain(host)) {
-                    discoveredHosts.add(host);
-                }
-            }
-        } catch (Exception e) {
-            Logger.debug("Failed to parse host from: " + url + " (" + e.getMessage() + ")");
+    private void recordAnchors(String html, String url) {
+        for (Link link : extractor.extractAnchors(html, url)) {
+            CanonicalUrl target = canonicalizer.canonicalize(link.url());
+            if (!inScope(target) || target.url().equals(url)) continue;
+            manifest.recordAnchor(target.url(), link.anchorText());
         }
     }
 
-    private boolean isUrlInSameDomain(String fullUrl) {
-        try {
-            URI uri = new URI(fullUrl);
-            String host = uri.getHost();
-            if (host == null) return false;
-            host = host.toLowerCase(Locale.ROOT);
-            if (host.startsWith("www.")) host = host.substring(4);
-            return isSameDomain(host);
-        } catch (Exception e) {
-            return false;
-        }
+    private boolean addHost(CanonicalUrl url) {
+        if (!inScope(url) || !discoveredHosts.add(url.siteHost())) return false;
+        dns.prefetch(url.host());
+        return true;
+    }
+
+    private boolean inScope(CanonicalUrl url) {
+        return url != null
+                && isSameDomain(url.siteHost())
+                && policy.allowsUrl(url.url())
+                && !budget.hostExhausted(url.host());
     }
 
     private boolean isSameDomain(String host) {
-        if (host == null || baseDomain == null) return false;
-        return host.equals(baseDomain) || host.endsWith("." + baseDomain);
+        return CrawlPolicy.matchesDomain(host, scopeDomains);
     }
 
     private void savePage(String url, String content) {
@@ -352,19 +496,23 @@ public class WebCrawlerGermany {
                 out = dir.resolve(withHash);
             }
 
-            Utils.writeAtomic(out, w -> {
-                try {
-                    w.write(content);
-                } catch (Exception ex) {
-                    throw new RuntimeException(ex);
-                }
-            });
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            Utils.writeAtomic(out, bytes, false);
+            manifest.recordPage(out.getFileName().toString(), url, Utils.crc32c(bytes));
 
         } catch (Exception e) {
             Logger.error("Error saving page: " + e.getMessage(), e);
         }
     }
 
+    public void savePageManifest() {
+        manifest.save(pagesDir);
+    }
+
+    public LinkGraph getLinkGraph() {
+        return linkGraph;
+    }
+
     public Set<String> getDiscoveredHosts() {
         return Collections.unmodifiableSet(new HashSet<>(discoveredHosts));
     }
@@ -372,19 +520,6 @@ public class WebCrawlerGermany {
     public void saveDiscoveredHosts(String path) {
         try {
             Path p = Paths.get(path);
-            Utils.ensureParentDirs(p);
-
-            if (java.nio.file.Files.exists(p)) {
-                String date = new java.text.SimpleDateFormat("yyyyMMdd_HHmmss")
-                        .format(new java.util.Date());
-                Path backup = p.getParent().resolve("hosts_backup_" + date + ".txt");
-                java.nio.file.Files.copy(
-                        p,
-                        backup,
-                        java.nio.file.StandardCopyOption.REPLACE_EXISTING
-                );
-            }
-
             Utils.writeAtomic(p, w -> {
                 try {
                     for (String h : discoveredHosts) {
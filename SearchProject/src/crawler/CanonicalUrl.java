@@ -0,0 +1,52 @@
+package crawler;
+
+public final class CanonicalUrl {
+    private final String url;
+    private final String scheme;
+    private final String host;
+    private final String siteHost;
+    private final int port;
+
+    CanonicalUrl(String url, String scheme, String host, String siteHost, int port) {
+        this.url = url;
+        this.scheme = scheme;
+        this.host = host;
+        this.siteHost = siteHost;
+        this.port = port;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public String scheme() {
+        return scheme;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public String siteHost() {
+        return siteHost;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CanonicalUrl && ((CanonicalUrl) o).url.equals(url);
+    }
+
+    @Override
+    public int hashCode() {
+        return url.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
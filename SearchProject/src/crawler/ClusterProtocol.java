@@ -0,0 +1,44 @@
+package crawler;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Set;
+
+final class ClusterProtocol {
+    static final int MAGIC = 0x30786837;
+    static final int VERSION = 1;
+
+    static final byte HELLO = 1;
+    static final byte ASSIGN = 2;
+    static final byte LINKS = 3;
+    static final byte PROGRESS = 4;
+    static final byte STOP = 5;
+    static final byte DONE = 6;
+
+    private ClusterProtocol() {}
+
+    static int partitionOf(String host, int partitions) {
+        if (partitions <= 1 || host == null) return 0;
+        int h = host.hashCode() * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), partitions);
+    }
+
+    static void writeProperties(DataOutputStream out, Properties props) throws IOException {
+        Set<String> keys = props.stringPropertyNames();
+        out.writeInt(keys.size());
+        for (String key : keys) {
+            out.writeUTF(key);
+            out.writeUTF(props.getProperty(key));
+        }
+    }
+
+    static Properties readProperties(DataInputStream in) throws IOException {
+        Properties props = new Properties();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            props.setProperty(in.readUTF(), in.readUTF());
+        }
+        return props;
+    }
+}
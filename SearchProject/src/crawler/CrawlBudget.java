@@ -0,0 +1,53 @@
+package crawler;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CrawlBudget {
+    private final CrawlPolicy policy;
+    private final AtomicLong bytes = new AtomicLong();
+    private final ConcurrentHashMap<String, long[]> usageByHost = new ConcurrentHashMap<>();
+    private final Set<String> exhaustedHosts = ConcurrentHashMap.newKeySet();
+    private volatile long deadline = Long.MAX_VALUE;
+
+    public CrawlBudget(CrawlPolicy policy) {
+        this.policy = policy;
+    }
+
+    public void start() {
+        if (policy.maxDurationMillis() > 0) {
+            deadline = System.currentTimeMillis() + policy.maxDurationMillis();
+        }
+    }
+
+    public boolean timeExpired() {
+        return System.currentTimeMillis() >= deadline;
+    }
+
+    public boolean bytesExhausted() {
+        return policy.maxBytes() > 0 && bytes.get() >= policy.maxBytes();
+    }
+
+    public boolean hostExhausted(String host) {
+        return host != null && !exhaustedHosts.isEmpty() && exhaustedHosts.contains(host);
+    }
+
+    public boolean record(String host, long bodyBytes, long elapsedMillis) {
+        bytes.addAndGet(bodyBytes);
+        if (host == null || (policy.maxBytesPerHost() <= 0 && policy.maxHostTimeMillis() <= 0)) return false;
+
+        long[] usage = usageByHost.computeIfAbsent(host, h -> new long[2]);
+        boolean over;
+        synchronized (usage) {
+            usage[0] += bodyBytes;
+            usage[1] += elapsedMillis;
+            over = (policy.maxBytesPerHost() > 0 && usage[0] >= policy.maxBytesPerHost())
+                    || (policy.maxHostTimeMillis() > 0 && usage[1] >= policy.maxHostTimeMillis());
+        }
+        return over && exhaustedHosts.add(host);
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+}
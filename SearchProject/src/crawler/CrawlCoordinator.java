@@ -0,0 +1,294 @@
+package crawler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import util.Logger;
+
+public class CrawlCoordinator {
+
+    public static class Summary {
+        private final int partition;
+        private final String worker;
+        private final long pages;
+        private final String pagesDir;
+
+        Summary(int partition, String worker, long pages, String pagesDir) {
+            this.partition = partition;
+            this.worker = worker;
+            this.pages = pages;
+            this.pagesDir = pagesDir;
+        }
+
+        public int partition() {
+            return partition;
+        }
+
+        public String worker() {
+            return worker;
+        }
+
+        public long pages() {
+            return pages;
+        }
+
+        public String pagesDir() {
+            return pagesDir;
+        }
+    }
+
+    private final class Peer {
+        final int partition;
+        final String name;
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        long relayedTo;
+        long relayedFrom;
+        long pages;
+        int queued;
+        long sent;
+        long received;
+        long bytes;
+        boolean idle;
+        boolean reported;
+        boolean dead;
+        Summary summary;
+
+        Peer(int partition, Socket socket, DataInputStream in, String name) throws IOException {
+            this.partition = partition;
+            this.name = name;
+            this.socket = socket;
+            this.in = in;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+        }
+    }
+
+    private final int port;
+    private final int workers;
+    private final long acceptTimeoutMillis;
+    private final long reportIntervalMillis;
+    private final List<Peer> peers = new ArrayList<>();
+    private long dropped;
+
+    public CrawlCoordinator(int port, int workers, long acceptTimeoutMillis, long reportIntervalMillis) {
+        this.port = port;
+        this.workers = Math.max(1, workers);
+        this.acceptTimeoutMillis = Math.max(0, acceptTimeoutMillis);
+        this.reportIntervalMillis = Math.max(100, reportIntervalMillis);
+    }
+
+    public static int partitionOf(String host, int partitions) {
+        return ClusterProtocol.partitionOf(host, partitions);
+    }
+
+    public List<Summary> run(Properties shared, String runId) throws IOException, InterruptedException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, acceptTimeoutMillis));
+            Logger.info("Coordinator listening on port " + server.getLocalPort() + ", waiting for " + workers + " workers");
+
+            while (peers.size() < workers) {
+                Socket s = server.accept();
+                try {
+                    peers.add(handshake(s, peers.size()));
+                } catch (IOException e) {
+                    Logger.warn("Rejected worker " + s.getRemoteSocketAddress() + ": " + e.getMessage());
+                    s.close();
+                }
+            }
+        }
+
+        for (Peer p : peers) {
+            synchronized (p.out) {
+                p.out.writeByte(ClusterProtocol.ASSIGN);
+                p.out.writeInt(p.partition);
+                p.out.writeInt(workers);
+                p.out.writeUTF(runId);
+                ClusterProtocol.writeProperties(p.out, shared);
+                p.out.flush();
+            }
+            Logger.info("Partition " + p.partition + " -> " + p.name);
+        }
+
+        List<Thread> readers = new ArrayList<>();
+        for (Peer p : peers) {
+            Thread t = new Thread(() -> readLoop(p), "coordinator-" + p.partition);
+            t.setDaemon(true);
+            t.start();
+            readers.add(t);
+        }
+
+        long lastLog = 0;
+        while (true) {
+            Thread.sleep(reportIntervalMillis / 2);
+            synchronized (this) {
+                if (isFinished()) break;
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastLog >= reportIntervalMillis * 4) {
+                logProgress();
+                lastLog = now;
+            }
+        }
+        logProgress();
+        Logger.info("All partitions idle; stopping workers");
+
+        for (Peer p : peers) {
+            send(p, ClusterProtocol.STOP, null);
+        }
+        for (Thread t : readers) {
+            t.join(60_000);
+        }
+
+        List<Summary> out = new ArrayList<>();
+        for (Peer p : peers) {
+            if (p.summary != null) out.add(p.summary);
+            try {
+                p.socket.close();
+            } catch (IOException ignore) {
+            }
+        }
+        if (dropped > 0) Logger.warn("Dropped " + dropped + " links addressed to lost workers");
+        return Collections.unmodifiableList(out);
+    }
+
+    private Peer handshake(Socket s, int partition) throws IOException {
+        s.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+        if (in.readByte() != ClusterProtocol.HELLO || in.readInt() != ClusterProtocol.MAGIC) {
+            throw new IOException("bad handshake");
+        }
+        int version = in.readInt();
+        if (version != ClusterProtocol.VERSION) {
+            throw new IOException("protocol version " + version + " != " + ClusterProtocol.VERSION);
+        }
+        return new Peer(partition, s, in, in.readUTF());
+    }
+
+    private void readLoop(Peer p) {
+        try {
+            while (true) {
+                byte type = p.in.readByte();
+                if (type == ClusterProtocol.LINKS) {
+                    relay(p);
+                } else if (type == ClusterProtocol.PROGRESS) {
+                    long pages = p.in.readLong();
+                    int queued = p.in.readInt();
+                    long sent = p.in.readLong();
+                    long received = p.in.readLong();
+                    long bytes = p.in.readLong();
+                    boolean idle = p.in.readBoolean();
+                    synchronized (this) {
+                        p.pages = pages;
+                        p.queued = queued;
+                        p.sent = sent;
+                        p.received = received;
+                        p.bytes = bytes;
+                        p.idle = idle;
+                        p.reported = true;
+                    }
+                } else if (type == ClusterProtocol.DONE) {
+                    long pages = p.in.readLong();
+                    String dir = p.in.readUTF();
+                    synchronized (this) {
+                        p.summary = new Summary(p.partition, p.name, pages, dir);
+                    }
+                    return;
+                } else {
+                    throw new IOException("unexpected message " + type);
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (p.summary == null) {
+                    Logger.error("Lost worker " + p.name + " (partition " + p.partition + "): " + e.getMessage());
+                    p.dead = true;
+                }
+            }
+        }
+    }
+
+    private void relay(Peer from) throws IOException {
+        int target = from.in.readInt();
+        int n = from.in.readInt();
+        String[] urls = new String[n];
+        int[] depths = new int[n];
+        for (int i = 0; i < n; i++) {
+            urls[i] = from.in.readUTF();
+            depths[i] = from.in.readInt();
+        }
+
+        Peer to = target >= 0 && target < peers.size() ? peers.get(target) : null;
+        synchronized (this) {
+            from.relayedFrom += n;
+            if (to == null || to.dead) {
+                dropped += n;
+                return;
+            }
+            to.relayedTo += n;
+        }
+
+        send(to, ClusterProtocol.LINKS, out -> {
+            out.writeInt(n);
+            for (int i = 0; i < n; i++) {
+                out.writeUTF(urls[i]);
+                out.writeInt(depths[i]);
+            }
+        });
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void send(Peer p, byte type, Body body) {
+        synchronized (p.out) {
+            try {
+                p.out.writeByte(type);
+                if (body != null) body.write(p.out);
+                p.out.flush();
+            } catch (IOException e) {
+                synchronized (this) {
+                    if (!p.dead && p.summary == null) {
+                        Logger.error("Cannot reach worker " + p.name + ": " + e.getMessage());
+                    }
+                    p.dead = true;
+                }
+            }
+        }
+    }
+
+    private boolean isFinished() {
+        for (Peer p : peers) {
+            if (p.dead) continue;
+            if (!p.reported || !p.idle) return false;
+            if (p.received != p.relayedTo || p.sent != p.relayedFrom) return false;
+        }
+        return true;
+    }
+
+    private synchronized void logProgress() {
+        long pages = 0;
+        long bytes = 0;
+        StringBuilder sb = new StringBuilder();
+        for (Peer p : peers) {
+            pages += p.pages;
+            bytes += p.bytes;
+            sb.append(" [").append(p.partition).append(": ")
+              .append(p.dead ? "lost" : (p.idle ? "idle" : "busy"))
+              .append(", ").append(p.pages).append(" pages, ")
+              .append(p.queued).append(" queued, ")
+              .append(p.sent).append(" out / ").append(p.received).append(" in]");
+        }
+        Logger.info("Cluster progress: " + pages + " pages, " + bytes + " bytes" + sb);
+    }
+}
@@ -0,0 +1,266 @@
+package crawler;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+public class CrawlFrontier {
+
+    private static final Pattern LOW_VALUE_URL = Pattern.compile(
+            "(?i).*([?&](page|p|sort|order|filter|sessionid|sid|replytocom)=|/(tag|tags|page|feed|print|login|search)/|/\\d{4}/\\d{2}/\\d{2}/).*");
+
+    public static class Entry {
+        private final String url;
+        private final String host;
+        private final int depth;
+        private final double score;
+        private final long seq;
+        private final int attempt;
+        private final long notBefore;
+
+        Entry(String url, String host, int depth, double score, long seq) {
+            this(url, host, depth, score, seq, 0, 0L);
+        }
+
+        Entry(String url, String host, int depth, double score, long seq, int attempt, long notBefore) {
+            this.url = url;
+            this.host = host;
+            this.depth = depth;
+            this.score = score;
+            this.seq = seq;
+            this.attempt = attempt;
+            this.notBefore = notBefore;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public String host() {
+            return host;
+        }
+
+        public int depth() {
+            return depth;
+        }
+
+        public double score() {
+            return score;
+        }
+
+        public int attempt() {
+            return attempt;
+        }
+    }
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>((a, b) -> {
+        int c = Double.compare(b.score, a.score);
+        return c != 0 ? c : Long.compare(a.seq, b.seq);
+    });
+
+    private final PriorityQueue<Entry> deferred = new PriorityQueue<>((a, b) -> Long.compare(a.notBefore, b.notBefore));
+
+    private final Map<String, int[]> inlinks = new HashMap<>();
+    private final Map<String, Integer> bestDepth = new HashMap<>();
+    private final Set<String> taken = new HashSet<>();
+    private final Map<String, int[]> hostFetched = new HashMap<>();
+
+    private final int hostBudget;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    private long seq;
+    private int inFlight;
+    private boolean closed;
+    private boolean keepAlive;
+
+    public CrawlFrontier(int hostBudget) {
+        this.hostBudget = hostBudget <= 0 ? Integer.MAX_VALUE : hostBudget;
+    }
+
+    public boolean offer(String url, String host, int depth) {
+        if (url == null) return false;
+        lock.lock();
+        try {
+            if (closed || taken.contains(url)) return false;
+
+            int[] in = inlinks.computeIfAbsent(url, k -> new int[1]);
+            in[0]++;
+
+            Integer known = bestDepth.get(url);
+            boolean first = known == null;
+            boolean shallower = !first && depth < known;
+            boolean promoted = !first && Integer.bitCount(in[0]) == 1;
+            if (!first && !shallower && !promoted) return false;
+
+            int d = first ? depth : Math.min(depth, known);
+            bestDepth.put(url, d);
+            queue.add(new Entry(url, host, d, score(url, host, d, in[0]), seq++));
+            changed.signal();
+            return first;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Entry take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) return null;
+
+                long now = System.currentTimeMillis();
+                while (!deferred.isEmpty() && deferred.peek().notBefore <= now) {
+                    queue.add(deferred.poll());
+                }
+
+                Entry e = queue.poll();
+                if (e == null) {
+                    if (inFlight == 0 && deferred.isEmpty() && !keepAlive) {
+                        changed.signalAll();
+                        return null;
+                    }
+                    long wait = deferred.isEmpty() ? 200 : Math.min(200, deferred.peek().notBefore - now);
+                    changed.await(Math.max(1, wait), TimeUnit.MILLISECONDS);
+                    continue;
+                }
+
+                if (taken.contains(e.url)) continue;
+                if (hostCount(e.host) >= hostBudget) continue;
+
+                double current = score(e.url, e.host, e.depth, inlinkCount(e.url));
+                Entry next = queue.peek();
+                if (current < e.score && next != null && next.score > current) {
+                    queue.add(new Entry(e.url, e.host, e.depth, current, e.seq, e.attempt, 0L));
+                    continue;
+                }
+
+                taken.add(e.url);
+                if (e.host != null) hostFetched.computeIfAbsent(e.host, k -> new int[1])[0]++;
+                inFlight++;
+                return e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void complete(Entry e) {
+        lock.lock();
+        try {
+            inFlight--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void defer(Entry e, long notBefore, boolean countAsAttempt) {
+        lock.lock();
+        try {
+            taken.remove(e.url);
+            if (e.host != null) {
+                int[] c = hostFetched.get(e.host);
+                if (c != null && c[0] > 0) c[0]--;
+            }
+            int attempt = countAsAttempt ? e.attempt + 1 : e.attempt;
+            deferred.add(new Entry(e.url, e.host, e.depth, e.score, e.seq, attempt, notBefore));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void dropHost(String host) {
+        if (host == null) return;
+        lock.lock();
+        try {
+            queue.removeIf(e -> host.equals(e.host));
+            deferred.removeIf(e -> host.equals(e.host));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        lock.lock();
+        try {
+            this.keepAlive = keepAlive;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isIdle() {
+        lock.lock();
+        try {
+            return inFlight == 0 && (closed || (queue.isEmpty() && deferred.isEmpty()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size() + deferred.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int inlinkCount(String url) {
+        int[] in = inlinks.get(url);
+        return in == null ? 0 : in[0];
+    }
+
+    private int hostCount(String host) {
+        if (host == null) return 0;
+        int[] c = hostFetched.get(host);
+        return c == null ? 0 : c[0];
+    }
+
+    private double score(String url, String host, int depth, int inlinkCount) {
+        double s = -1.0 * depth;
+        s += 0.75 * (Math.log(1.0 + inlinkCount) / Math.log(2));
+        s += urlScore(url);
+        s -= 0.02 * hostCount(host);
+        return s;
+    }
+
+    static double urlScore(String url) {
+        double s = 0.0;
+        int start = url.indexOf("://");
+        int pathStart = url.indexOf('/', start < 0 ? 0 : start + 3);
+        if (pathStart >= 0) {
+            int segments = 0;
+            for (int i = pathStart + 1; i < url.length(); i++) {
+                char c = url.charAt(i);
+                if (c == '?' || c == '#') break;
+                if (c == '/') segments++;
+            }
+            s -= 0.25 * segments;
+        }
+        if (url.indexOf('?') >= 0) s -= 0.5;
+        if (LOW_VALUE_URL.matcher(url.toLowerCase(Locale.ROOT)).matches()) s -= 1.0;
+        return s;
+    }
+}
@@ -0,0 +1,236 @@
+package crawler;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import util.Logger;
+
+public class CrawlPolicy {
+
+    public static final int DEFAULT_MAX_PAGES = 200;
+
+    private final List<String> seeds;
+    private final int maxDepth;
+    private final int maxPages;
+    private final int maxPagesPerHost;
+    private final long maxBytes;
+    private final long maxBytesPerHost;
+    private final long maxDurationMillis;
+    private final long maxHostTimeMillis;
+    private final int threads;
+    private final List<String> allowedDomains;
+    private final Pattern scope;
+
+    public CrawlPolicy(List<String> seeds, int maxDepth, int maxPages, int maxPagesPerHost,
+                       long maxBytes, long maxBytesPerHost, long maxDurationMillis, long maxHostTimeMillis,
+                       int threads, List<String> allowedDomains, List<String> include, List<String> exclude) {
+        this.seeds = Collections.unmodifiableList(new ArrayList<>(seeds));
+        this.maxDepth = Math.max(1, maxDepth);
+        this.maxPages = Math.max(1, maxPages);
+        this.maxPagesPerHost = Math.max(0, maxPagesPerHost);
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxBytesPerHost = Math.max(0, maxBytesPerHost);
+        this.maxDurationMillis = Math.max(0, maxDurationMillis);
+        this.maxHostTimeMillis = Math.max(0, maxHostTimeMillis);
+        this.threads = Math.max(0, threads);
+        List<String> domains = new ArrayList<>();
+        for (String d : allowedDomains) {
+            String host = d.trim().toLowerCase(Locale.ROOT);
+            if (host.startsWith("*.")) host = host.substring(2);
+            if (host.startsWith("www.")) host = host.substring(4);
+            if (!host.isEmpty()) domains.add(host);
+        }
+        this.allowedDomains = Collections.unmodifiableList(domains);
+        this.scope = compileScope(include, exclude);
+    }
+
+    public static CrawlPolicy fromSystemProperties() {
+        return fromProperties(System.getProperties());
+    }
+
+    public static CrawlPolicy fromProperties(Properties p) {
+        List<String> seeds = list(p.getProperty("crawler.seeds"), "[,\\s]+");
+        String seedFile = p.getProperty("crawler.seedFile");
+        if (seedFile != null && !seedFile.isBlank()) {
+            seeds.addAll(readSeedFile(Path.of(seedFile.trim())));
+        }
+        return new CrawlPolicy(
+                seeds,
+                (int) number(p, "crawler.maxDepth", 1),
+                (int) number(p, "crawler.maxPages", DEFAULT_MAX_PAGES),
+                (int) number(p, "crawler.maxPagesPerHost", 0),
+                bytes(p, "crawler.maxBytes"),
+                bytes(p, "crawler.maxBytesPerHost"),
+                millis(p, "crawler.maxDuration"),
+                millis(p, "crawler.maxHostTime"),
+                (int) number(p, "crawler.threads", 0),
+                list(p.getProperty("crawler.allowedDomains"), "[,\\s]+"),
+                list(p.getProperty("crawler.include"), "\\s+"),
+                list(p.getProperty("crawler.exclude"), "\\s+"));
+    }
+
+    public List<String> seeds() {
+        return seeds;
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    public int maxPages() {
+        return maxPages;
+    }
+
+    public int maxPagesPerHost() {
+        return maxPagesPerHost;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public long maxBytesPerHost() {
+        return maxBytesPerHost;
+    }
+
+    public long maxDurationMillis() {
+        return maxDurationMillis;
+    }
+
+    public long maxHostTimeMillis() {
+        return maxHostTimeMillis;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public List<String> allowedDomains() {
+        return allowedDomains;
+    }
+
+    public boolean allowsUrl(String url) {
+        return scope == null || scope.matcher(url).lookingAt();
+    }
+
+    public static boolean matchesDomain(String host, List<String> domains) {
+        if (host == null) return false;
+        for (int i = 0; i < domains.size(); i++) {
+            String d = domains.get(i);
+            int extra = host.length() - d.length();
+            if (extra == 0 ? host.equals(d)
+                    : extra > 0 && host.endsWith(d) && host.charAt(extra - 1) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "seeds=" + seeds.size() + " depth=" + maxDepth + " pages=" + maxPages
+                + (maxPagesPerHost > 0 ? " pages/host=" + maxPagesPerHost : "")
+                + (maxBytes > 0 ? " bytes=" + maxBytes : "")
+                + (maxBytesPerHost > 0 ? " bytes/host=" + maxBytesPerHost : "")
+                + (maxDurationMillis > 0 ? " time=" + maxDurationMillis + "ms" : "")
+                + (maxHostTimeMillis > 0 ? " time/host=" + maxHostTimeMillis + "ms" : "")
+                + (allowedDomains.isEmpty() ? "" : " domains=" + allowedDomains)
+                + (scope == null ? "" : " scope=" + scope.pattern());
+    }
+
+    static Pattern compileScope(List<String> include, List<String> exclude) {
+        String in = alternation(include);
+        String ex = alternation(exclude);
+        if (in == null && ex == null) return null;
+
+        StringBuilder re = new StringBuilder();
+        if (ex != null) re.append("(?!.*?").append(ex).append(')');
+        if (in != null) re.append("(?=.*?").append(in).append(')');
+        return Pattern.compile(re.toString());
+    }
+
+    private static String alternation(List<String> patterns) {
+        StringBuilder sb = new StringBuilder();
+        for (String p : patterns) {
+            try {
+                Pattern.compile(p);
+            } catch (PatternSyntaxException e) {
+                Logger.warn("Ignoring invalid URL pattern " + p + ": " + e.getDescription());
+                continue;
+            }
+            sb.append(sb.length() == 0 ? "(?:" : "|").append("(?:").append(p).append(')');
+        }
+        return sb.length() == 0 ? null : sb.append(')').toString();
+    }
+
+    private static List<String> readSeedFile(Path file) {
+        List<String> out = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String s = line.trim();
+                if (!s.isEmpty() && !s.startsWith("#")) out.add(s);
+            }
+        } catch (IOException e) {
+            Logger.warn("Cannot read seed file " + file + ": " + e.getMessage());
+        }
+        return out;
+    }
+
+    private static List<String> list(String value, String separator) {
+        List<String> out = new ArrayList<>();
+        if (value == null) return out;
+        for (String s : value.trim().split(separator)) {
+            if (!s.isEmpty()) out.add(s);
+        }
+        return out;
+    }
+
+    private static long number(Properties p, String name, long def) {
+        String v = p.getProperty(name);
+        if (v == null || v.isBlank()) return def;
+        try {
+            return Long.parseLong(v.trim().replace("_", ""));
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid value for " + name + "; using " + def);
+            return def;
+        }
+    }
+
+    static long bytes(Properties p, String name) {
+        return scaled(name, p.getProperty(name), "kmg", new long[] {1L << 10, 1L << 20, 1L << 30});
+    }
+
+    static long millis(Properties p, String name) {
+        String v = p.getProperty(name);
+        if (v != null && v.trim().toLowerCase(Locale.ROOT).endsWith("ms")) {
+            v = v.trim();
+            return parseScaled(name, v, v.substring(0, v.length() - 2), 1);
+        }
+        return scaled(name, v, "smh", new long[] {1000L, 60_000L, 3_600_000L});
+    }
+
+    private static long scaled(String name, String value, String units, long[] factors) {
+        if (value == null || value.isBlank()) return 0;
+        String s = value.trim().toLowerCase(Locale.ROOT);
+        int unit = units.indexOf(s.charAt(s.length() - 1));
+        if (unit < 0) return parseScaled(name, value, s, 1);
+        return parseScaled(name, value, s.substring(0, s.length() - 1), factors[unit]);
+    }
+
+    private static long parseScaled(String name, String value, String digits, long factor) {
+        try {
+            return Long.parseLong(digits.trim().replace("_", "")) * factor;
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid value for " + name + ": " + value + "; ignoring");
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package crawler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import util.Utils;
+
+public class CsrGraph {
+    private static final int MAGIC = 0x43535231;
+
+    private final String[] urls;
+    private final int[] offsets;
+    private final int[] targets;
+
+    public CsrGraph(String[] urls, int[] offsets, int[] targets) {
+        this.urls = urls;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public int nodeCount() {
+        return urls.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public String url(int node) {
+        return urls[node];
+    }
+
+    public int outDegree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    public int[] offsets() {
+        return offsets;
+    }
+
+    public int[] targets() {
+        return targets;
+    }
+
+    public UrlIndex urlIndex() {
+        return UrlIndex.of(urls);
+    }
+
+    public CsrGraph transpose() {
+        int n = urls.length;
+        int[] inOffsets = new int[n + 1];
+        for (int t : targets) inOffsets[t + 1]++;
+        for (int i = 0; i < n; i++) inOffsets[i + 1] += inOffsets[i];
+
+        int[] sources = new int[targets.length];
+        int[] fill = Arrays.copyOf(inOffsets, n);
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                sources[fill[targets[i]]++] = v;
+            }
+        }
+        return new CsrGraph(urls, inOffsets, sources);
+    }
+
+    public void save(Path file) throws IOException {
+        Utils.ensureParentDirs(file);
+        Path tmp = file.resolveSibling(file.getFileName().toString() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(urls.length);
+            out.writeInt(targets.length);
+            for (String u : urls) {
+                byte[] b = u.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(b.length);
+                out.write(b);
+            }
+            for (int o : offsets) out.writeInt(o);
+            for (int t : targets) out.writeInt(t);
+        }
+        Utils.publish(tmp, file);
+    }
+
+    public static CsrGraph load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a link graph file: " + file);
+            int n = in.readInt();
+            int m = in.readInt();
+            String[] urls = new String[n];
+            for (int i = 0; i < n; i++) {
+                byte[] b = new byte[in.readInt()];
+                in.readFully(b);
+                urls[i] = new String(b, StandardCharsets.UTF_8);
+            }
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i <= n; i++) offsets[i] = in.readInt();
+            int[] targets = new int[m];
+            for (int i = 0; i < m; i++) targets[i] = in.readInt();
+            return new CsrGraph(urls, offsets, targets);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package crawler;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import util.Logger;
+
+public class DnsCache {
+
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger(1);
+
+    private static final class Entry {
+        final CompletableFuture<InetAddress[]> future;
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(CompletableFuture<InetAddress[]> future) {
+            this.future = future;
+        }
+    }
+
+    private final HostResolver resolver;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final long timeoutMillis;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public DnsCache(HostResolver resolver, long ttlMillis, long negativeTtlMillis, long timeoutMillis, int threads) {
+        this.resolver = resolver;
+        this.ttlMillis = Math.max(0, ttlMillis);
+        this.negativeTtlMillis = Math.max(0, negativeTtlMillis);
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "dns-" + THREAD_SEQ.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static DnsCache fromSystemProperties() {
+        long ttl = Long.getLong("crawler.dns.ttlMs", 300_000L);
+        long negativeTtl = Long.getLong("crawler.dns.negativeTtlMs", 60_000L);
+        alignJvmCache(ttl, negativeTtl);
+        return new DnsCache(
+                HostResolver.SYSTEM,
+                ttl,
+                negativeTtl,
+                Long.getLong("crawler.dns.timeoutMs", 10_000L),
+                Integer.getInteger("crawler.dns.threads", 4));
+    }
+
+    private static void alignJvmCache(long ttlMillis, long negativeTtlMillis) {
+        try {
+            if (System.getProperty("sun.net.inetaddr.ttl") == null) {
+                Security.setProperty("networkaddress.cache.ttl", String.valueOf(seconds(ttlMillis)));
+            }
+            if (System.getProperty("sun.net.inetaddr.negative.ttl") == null) {
+                Security.setProperty("networkaddress.cache.negative.ttl", String.valueOf(seconds(negativeTtlMillis)));
+            }
+        } catch (SecurityException e) {
+            Logger.warn("Cannot set the JVM DNS cache TTL: " + e.getMessage());
+        }
+    }
+
+    private static long seconds(long millis) {
+        return millis <= 0 ? 0 : (millis + 999) / 1000;
+    }
+
+    public void prefetch(String host) {
+        if (host == null || host.isEmpty()) return;
+        entryFor(host.toLowerCase(Locale.ROOT));
+    }
+
+    public InetAddress[] resolve(String host) throws UnknownHostException, InterruptedException {
+        if (host == null || host.isEmpty()) throw new UnknownHostException(String.valueOf(host));
+        String key = host.toLowerCase(Locale.ROOT);
+        try {
+            return entryFor(key).future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnknownHostException) throw (UnknownHostException) e.getCause();
+            UnknownHostException u = new UnknownHostException(key + ": " + e.getCause());
+            u.initCause(e.getCause());
+            throw u;
+        } catch (TimeoutException e) {
+            throw new UnknownHostException(key + ": lookup timed out after " + timeoutMillis + " ms");
+        }
+    }
+
+    public boolean isKnownUnresolvable(String host) {
+        if (host == null) return false;
+        Entry e = entries.get(host.toLowerCase(Locale.ROOT));
+        return e != null && e.future.isCompletedExceptionally() && e.expiresAt > System.currentTimeMillis();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Entry entryFor(String host) {
+        long now = System.currentTimeMillis();
+        Entry e = entries.get(host);
+        if (e != null && (!e.future.isDone() || e.expiresAt > now)) return e;
+
+        Entry fresh = new Entry(new CompletableFuture<>());
+        Entry prev = e == null ? entries.putIfAbsent(host, fresh)
+                : (entries.replace(host, e, fresh) ? null : entries.get(host));
+        if (prev != null) return prev;
+
+        try {
+            executor.execute(() -> lookup(host, fresh));
+        } catch (RejectedExecutionException rejected) {
+            entries.remove(host, fresh);
+            fresh.future.completeExceptionally(new UnknownHostException(host + ": resolver shut down"));
+        }
+        return fresh;
+    }
+
+    private void lookup(String host, Entry entry) {
+        try {
+            InetAddress[] addrs = resolver.resolve(host);
+            if (addrs == null || addrs.length == 0) throw new UnknownHostException(host);
+            entry.expiresAt = System.currentTimeMillis() + ttlMillis;
+            entry.future.complete(addrs);
+        } catch (UnknownHostException e) {
+            Logger.debug("DNS lookup failed for " + host);
+            entry.expiresAt = System.currentTimeMillis() + negativeTtlMillis;
+            entry.future.completeExceptionally(e);
+        } catch (Exception e) {
+            entry.expiresAt = System.currentTimeMillis() + negativeTtlMillis;
+            entry.future.completeExceptionally(e);
+        }
+    }
+}
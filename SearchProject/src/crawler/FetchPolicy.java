@@ -0,0 +1,117 @@
+package crawler;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class FetchPolicy {
+    private final PageDownloader downloader;
+    private final HostCircuitBreaker breaker;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final DnsCache dns;
+    private final int maxConnectionsPerHost;
+    private final ConcurrentHashMap<String, Semaphore> connectionsByHost = new ConcurrentHashMap<>();
+
+    public FetchPolicy(PageDownloader downloader, HostCircuitBreaker breaker,
+                       int maxRetries, long baseBackoffMillis, long maxBackoffMillis) {
+        this(downloader, breaker, maxRetries, baseBackoffMillis, maxBackoffMillis, null, 0);
+    }
+
+    public FetchPolicy(PageDownloader downloader, HostCircuitBreaker breaker,
+                       int maxRetries, long baseBackoffMillis, long maxBackoffMillis,
+                       DnsCache dns, int maxConnectionsPerHost) {
+        this.downloader = downloader;
+        this.breaker = breaker;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseBackoffMillis = Math.max(1, baseBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.baseBackoffMillis, maxBackoffMillis);
+        this.dns = dns;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public static FetchPolicy fromSystemProperties(PageDownloader downloader, DnsCache dns) {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(
+                Integer.getInteger("crawler.breaker.failures", 5),
+                Long.getLong("crawler.breaker.openMs", 30_000L),
+                Integer.getInteger("crawler.breaker.maxTrips", 3));
+        return new FetchPolicy(
+                downloader,
+                breaker,
+                Integer.getInteger("crawler.retries", 2),
+                Long.getLong("crawler.backoffMs", 500L),
+                Long.getLong("crawler.maxBackoffMs", 30_000L),
+                dns,
+                Integer.getInteger("crawler.maxConnectionsPerHost", 4));
+    }
+
+    public FetchResult fetch(String url, String host) {
+        if (!breaker.allow(host)) {
+            return FetchResult.failure(FetchResult.Outcome.CIRCUIT_OPEN, "circuit open for " + host);
+        }
+
+        if (dns != null && host != null) {
+            try {
+                dns.resolve(host);
+            } catch (UnknownHostException e) {
+                breaker.onFailure(host);
+                return FetchResult.failure(FetchResult.Outcome.DNS_FAILURE, String.valueOf(e.getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                breaker.releaseProbe(host);
+                return FetchResult.failure(FetchResult.Outcome.INTERRUPTED, "interrupted");
+            }
+        }
+
+        Semaphore slots = slotsFor(host);
+        if (slots != null) {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                breaker.releaseProbe(host);
+                return FetchResult.failure(FetchResult.Outcome.INTERRUPTED, "interrupted");
+            }
+        }
+        FetchResult r = null;
+        try {
+            r = downloader.fetchPage(url);
+        } finally {
+            if (slots != null) slots.release();
+            if (r == null) breaker.releaseProbe(host);
+        }
+        if (r.outcome().isHostFailure()) {
+            breaker.onFailure(host);
+        } else if (r.outcome() == FetchResult.Outcome.INTERRUPTED) {
+            breaker.releaseProbe(host);
+        } else {
+            breaker.onSuccess(host);
+        }
+        return r;
+    }
+
+    public long retryDelayMillis(FetchResult r, int attempt) {
+        if (!r.outcome().isRetryable() || attempt >= maxRetries) return -1;
+
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+        if (r.retryAfterMillis() > 0) {
+            delay = Math.max(delay, Math.min(r.retryAfterMillis(), maxBackoffMillis));
+        }
+        return delay;
+    }
+
+    private Semaphore slotsFor(String host) {
+        if (maxConnectionsPerHost <= 0 || host == null) return null;
+        return connectionsByHost.computeIfAbsent(host, h -> new Semaphore(maxConnectionsPerHost, true));
+    }
+
+    public long parkedUntil(String host) {
+        return breaker.openUntil(host);
+    }
+
+    public HostCircuitBreaker breaker() {
+        return breaker;
+    }
+}
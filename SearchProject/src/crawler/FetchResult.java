@@ -0,0 +1,95 @@
+package crawler;
+
+public class FetchResult {
+
+    public enum Outcome {
+        OK(false, false),
+        NOT_HTML(false, false),
+        TOO_LARGE(false, false),
+        CLIENT_ERROR(false, false),
+        THROTTLED(true, true),
+        SERVER_ERROR(true, true),
+        TIMEOUT(true, true),
+        NETWORK_ERROR(true, true),
+        DNS_FAILURE(false, true),
+        CIRCUIT_OPEN(false, false),
+        INTERRUPTED(false, false);
+
+        private final boolean retryable;
+        private final boolean hostFailure;
+
+        Outcome(boolean retryable, boolean hostFailure) {
+            this.retryable = retryable;
+            this.hostFailure = hostFailure;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+
+        public boolean isHostFailure() {
+            return hostFailure;
+        }
+    }
+
+    private final Outcome outcome;
+    private final int httpStatus;
+    private final String html;
+    private final long retryAfterMillis;
+    private final String message;
+    private final long bodyBytes;
+
+    private FetchResult(Outcome outcome, int httpStatus, String html, long retryAfterMillis, String message, long bodyBytes) {
+        this.outcome = outcome;
+        this.httpStatus = httpStatus;
+        this.html = html;
+        this.retryAfterMillis = retryAfterMillis;
+        this.message = message;
+        this.bodyBytes = bodyBytes;
+    }
+
+    public static FetchResult ok(int httpStatus, String html, long bodyBytes) {
+        return new FetchResult(Outcome.OK, httpStatus, html, -1, null, bodyBytes);
+    }
+
+    public static FetchResult http(Outcome outcome, int httpStatus, long retryAfterMillis) {
+        return new FetchResult(outcome, httpStatus, null, retryAfterMillis, "HTTP " + httpStatus, 0);
+    }
+
+    public static FetchResult failure(Outcome outcome, String message) {
+        return new FetchResult(outcome, -1, null, -1, message, 0);
+    }
+
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    public boolean isOk() {
+        return outcome == Outcome.OK;
+    }
+
+    public int httpStatus() {
+        return httpStatus;
+    }
+
+    public String html() {
+        return html;
+    }
+
+    public long bodyBytes() {
+        return bodyBytes;
+    }
+
+    public long retryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return outcome + (message == null ? "" : " (" + message + ")");
+    }
+}
@@ -0,0 +1,105 @@
+package crawler;
+import java.util.concurrent.ConcurrentHashMap;
+
+import util.Logger;
+
+public class HostCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN, DEAD }
+
+    private static class HostState {
+        State state = State.CLOSED;
+        int consecutiveFailures;
+        int trips;
+        long openUntil;
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final int maxTrips;
+    private final ConcurrentHashMap<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public HostCircuitBreaker(int failureThreshold, long openMillis, int maxTrips) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+        this.maxTrips = Math.max(1, maxTrips);
+    }
+
+    public boolean allow(String host) {
+        if (host == null) return true;
+        HostState s = hosts.get(host);
+        if (s == null) return true;
+        synchronized (s) {
+            switch (s.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.currentTimeMillis() >= s.openUntil) {
+                        s.state = State.HALF_OPEN;
+                        return true;
+                    }
+                    return false;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    public void onSuccess(String host) {
+        if (host == null) return;
+        HostState s = hosts.get(host);
+        if (s == null) return;
+        synchronized (s) {
+            s.state = State.CLOSED;
+            s.consecutiveFailures = 0;
+            s.trips = 0;
+        }
+    }
+
+    public void onFailure(String host) {
+        if (host == null) return;
+        HostState s = hosts.computeIfAbsent(host, k -> new HostState());
+        synchronized (s) {
+            s.consecutiveFailures++;
+            boolean trip = s.state == State.HALF_OPEN
+                    || (s.state == State.CLOSED && s.consecutiveFailures >= failureThreshold);
+            if (!trip) return;
+
+            s.trips++;
+            if (s.trips >= maxTrips) {
+                s.state = State.DEAD;
+                Logger.warn("Host " + host + " failed " + s.consecutiveFailures + " times in a row; giving up on it");
+                return;
+            }
+            s.state = State.OPEN;
+            s.openUntil = System.currentTimeMillis() + (openMillis << (s.trips - 1));
+            Logger.warn("Circuit opened for " + host + " until " + s.openUntil
+                    + " after " + s.consecutiveFailures + " consecutive failures");
+        }
+    }
+
+    public void releaseProbe(String host) {
+        if (host == null) return;
+        HostState s = hosts.get(host);
+        if (s == null) return;
+        synchronized (s) {
+            if (s.state == State.HALF_OPEN) s.state = State.OPEN;
+        }
+    }
+
+    public State state(String host) {
+        HostState s = host == null ? null : hosts.get(host);
+        if (s == null) return State.CLOSED;
+        synchronized (s) {
+            return s.state;
+        }
+    }
+
+    public long openUntil(String host) {
+        HostState s = host == null ? null : hosts.get(host);
+        if (s == null) return 0L;
+        synchronized (s) {
+            return s.state == State.DEAD ? -1L : s.openUntil;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package crawler;
+
+public class Link {
+    private final String url;
+    private final String anchorText;
+
+    public Link(String url, String anchorText) {
+        this.url = url;
+        this.anchorText = anchorText == null ? "" : anchorText;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public String anchorText() {
+        return anchorText;
+    }
+}
@@ -1,6 +1,14 @@
 package crawler;
+import java.util.ArrayList;
 import java.util.List;
 
 public interface LinkExtractor {
     List<String> extractLinks(String htmlContent, String baseUrl);
+
+    default List<Link> extractAnchors(String htmlContent, String baseUrl) {
+        List<String> urls = extractLinks(htmlContent, baseUrl);
+        List<Link> out = new ArrayList<>(urls.size());
+        for (String u : urls) out.add(new Link(u, ""));
+        return out;
+    }
 }
@@ -0,0 +1,72 @@
+package crawler;
+import java.util.Arrays;
+import java.util.List;
+
+public class LinkGraph {
+    private final UrlIndex urls = new UrlIndex(1024);
+
+    private int[] src = new int[1024];
+    private int[] dst = new int[1024];
+    private int edges;
+
+    public synchronized int nodeId(String url) {
+        return urls.add(url);
+    }
+
+    public synchronized void addEdges(String fromUrl, List<String> toUrls) {
+        if (fromUrl == null || toUrls == null || toUrls.isEmpty()) return;
+        int from = urls.add(fromUrl);
+        ensureEdgeCapacity(edges + toUrls.size());
+        for (String u : toUrls) {
+            if (u == null) continue;
+            int t = urls.add(u);
+            if (t == from) continue;
+            src[edges] = from;
+            dst[edges] = t;
+            edges++;
+        }
+    }
+
+    private void ensureEdgeCapacity(int needed) {
+        if (needed <= src.length) return;
+        int cap = src.length;
+        while (cap < needed) cap = cap + (cap >> 1);
+        src = Arrays.copyOf(src, cap);
+        dst = Arrays.copyOf(dst, cap);
+    }
+
+    public synchronized int nodeCount() {
+        return urls.size();
+    }
+
+    public synchronized int edgeCount() {
+        return edges;
+    }
+
+    public synchronized CsrGraph toCsr() {
+        int n = urls.size();
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < edges; i++) offsets[src[i] + 1]++;
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+
+        int[] targets = new int[edges];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < edges; i++) targets[fill[src[i]]++] = dst[i];
+
+        int m = 0;
+        int[] compactOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int from = offsets[v];
+            int to = offsets[v + 1];
+            Arrays.sort(targets, from, to);
+            compactOffsets[v] = m;
+            for (int i = from; i < to; i++) {
+                if (i > from && targets[i] == targets[i - 1]) continue;
+                targets[m++] = targets[i];
+            }
+        }
+        compactOffsets[n] = m;
+
+        return new CsrGraph(urls.urls(), compactOffsets, Arrays.copyOf(targets, m));
+    }
+}
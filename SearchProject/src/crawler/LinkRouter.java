@@ -0,0 +1,8 @@
+package crawler;
+
+public interface LinkRouter {
+
+    boolean isLocal(String host);
+
+    void forward(String url, String host, int depth);
+}
@@ -1,32 +1,161 @@
 package crawler;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.net.URI;
+import java.net.UnknownHostException;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import util.Logger;
 
 public class PageDownloader {
-    private final HttpClient client = HttpClient.newBuilder()
-            .followRedirects(HttpClient.Redirect.ALWAYS)
-            .connectTimeout(Duration.ofSeconds(15))
-            .build();
+    private static final String ROBOTS_AGENT = System.getProperty("crawler.robotsAgent", "0xh7engine").trim();
+    private static final String USER_AGENT = ROBOTS_AGENT + "/1.0 (+"
+            + System.getProperty("crawler.contact", "https://github.com/0xh7/Simple-Java-Web-Engine").trim() + ")";
+
+    private static final long DEFAULT_MAX_BODY_BYTES = 5L * 1024 * 1024;
+    private static final int SNIFF_BYTES = 4096;
+
+    private static final Pattern META_CHARSET =
+        Pattern.compile("(?is)<meta\\b[^>]*?charset\\s*=\\s*[\"']?\\s*([a-z0-9_:.\\-]+)");
+
+    private final HttpClient client;
+    private final long maxBodyBytes;
+
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong decodedBytes = new AtomicLong();
+
+    static {
+        copyProperty("crawler.connectionPoolSize", "jdk.httpclient.connectionPoolSize");
+        copyProperty("crawler.keepAliveSeconds", "jdk.httpclient.keepalive.timeout");
+    }
+
+    public static class BodyTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public BodyTooLargeException(String url, long limit) {
+            super("Response body of " + url + " exceeds " + limit + " bytes");
+        }
+    }
+
+    public static class Response {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+        private final HttpHeaders headers;
+
+        Response(int status, String contentType, byte[] body, HttpHeaders headers) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.headers = headers;
+        }
+
+        public String header(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        public int status() {
+            return status;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public byte[] body() {
+            return body;
+        }
+    }
+
+    public PageDownloader() {
+        this(Long.getLong("crawler.maxBodyBytes", DEFAULT_MAX_BODY_BYTES),
+             Boolean.parseBoolean(System.getProperty("crawler.http2", "true")));
+    }
+
+    public PageDownloader(long maxBodyBytes, boolean preferHttp2) {
+        this.maxBodyBytes = maxBodyBytes > 0 ? maxBodyBytes : DEFAULT_MAX_BODY_BYTES;
+        this.client = HttpClient.newBuilder()
+                .version(preferHttp2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.ALWAYS)
+                .connectTimeout(Duration.ofSeconds(15))
+                .build();
+    }
+
+    private static void copyProperty(String from, String to) {
+        String v = System.getProperty(from);
+        if (v != null && System.getProperty(to) == null) {
+            System.setProperty(to, v.trim());
+        }
+    }
+
+    public static String robotsAgent() {
+        return ROBOTS_AGENT;
+    }
+
+    public Response fetch(String url, String accept) throws IOException, InterruptedException {
+        return fetch(url, accept, maxBodyBytes);
+    }
+
+    public Response fetch(String url, String accept, long maxBytes) throws IOException, InterruptedException {
+        return read(send(url, accept), url, maxBytes);
+    }
+
+    private HttpResponse<InputStream> send(String url, String accept) throws IOException, InterruptedException {
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", accept)
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET()
+                .build();
+
+        return client.send(req, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private Response read(HttpResponse<InputStream> res, String url, long maxBytes) throws IOException {
+        String contentType = res.headers().firstValue("Content-Type").orElse("");
+        String encoding = res.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        long declared = res.headers().firstValueAsLong("Content-Length").orElse(-1L);
+
+        try (CountingInputStream wire = new CountingInputStream(res.body())) {
+            if (declared > maxBytes) {
+                throw new BodyTooLargeException(url, maxBytes);
+            }
+            byte[] body = readBounded(decode(wire, encoding), maxBytes, url);
+            wireBytes.addAndGet(wire.count);
+            decodedBytes.addAndGet(body.length);
+            return new Response(res.statusCode(), contentType, body, res.headers());
+        }
+    }
 
     public String download(String url) {
+        FetchResult r = fetchPage(url);
+        return r.isOk() ? r.html() : "";
+    }
+
+    public FetchResult fetchPage(String url) {
         try {
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(30))
-                    .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) " +
-                            "AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36")
-                    .header("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.1")
-                    .GET()
-                    .build();
-
-            HttpResponse<byte[]> res = client.send(req, HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse<InputStream> res = send(url, "text/html,application/xhtml+xml;q=0.9,*/*;q=0.1");
             int code = res.statusCode();
 
             if (code >= 200 && code < 300) {
@@ -34,29 +163,178 @@ public class PageDownloader {
                 String lower = contentType.toLowerCase(Locale.ROOT);
 
                 if (!lower.contains("text/html") && !lower.contains("application/xhtml+xml")) {
+                    res.body().close();
                     Logger.info("Skipping non-HTML: " + url + " (" + contentType + ")");
-                    return "";
+                    return FetchResult.http(FetchResult.Outcome.NOT_HTML, code, -1);
                 }
 
-                Charset cs = StandardCharsets.UTF_8;
-                int i = lower.indexOf("charset=");
-                if (i >= 0) {
-                    String enc = lower.substring(i + 8).trim();
-                    enc = enc.replace("\"", "").replace("'", "");
-                    try {
-                        cs = Charset.forName(enc);
-                    } catch (Exception e) {
-                        Logger.debug("Invalid charset: " + enc);
-                    }
-                }
+                byte[] body = read(res, url, maxBodyBytes).body();
+                return FetchResult.ok(code, new String(body, detectCharset(contentType, body)), body.length);
+            }
 
-                return new String(res.body(), cs);
-            } else {
-                Logger.warn("Error downloading " + url + ": HTTP " + code);
+            res.body().close();
+            Logger.warn("Error downloading " + url + ": HTTP " + code);
+            long retryAfter = parseRetryAfter(res.headers().firstValue("Retry-After").orElse(null));
+            if (code == 429 || code == 503) {
+                return FetchResult.http(FetchResult.Outcome.THROTTLED, code, retryAfter);
             }
+            if (code == 408 || code >= 500) {
+                return FetchResult.http(FetchResult.Outcome.SERVER_ERROR, code, retryAfter);
+            }
+            return FetchResult.http(FetchResult.Outcome.CLIENT_ERROR, code, -1);
+
+        } catch (BodyTooLargeException e) {
+            Logger.warn("Skipping " + url + ": " + e.getMessage());
+            return FetchResult.failure(FetchResult.Outcome.TOO_LARGE, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Interrupted while downloading " + url);
+            return FetchResult.failure(FetchResult.Outcome.INTERRUPTED, "interrupted");
+        } catch (HttpTimeoutException e) {
+            Logger.warn("Timeout downloading " + url + ": " + e.getMessage());
+            return FetchResult.failure(FetchResult.Outcome.TIMEOUT, e.getMessage());
+        } catch (IOException e) {
+            if (isUnresolved(e)) {
+                Logger.warn("Cannot resolve host for " + url);
+                return FetchResult.failure(FetchResult.Outcome.DNS_FAILURE, String.valueOf(e.getMessage()));
+            }
+            Logger.warn("Error downloading " + url + ": " + e);
+            return FetchResult.failure(FetchResult.Outcome.NETWORK_ERROR, String.valueOf(e.getMessage()));
         } catch (Exception e) {
             Logger.error("Error downloading " + url + ": " + e.getMessage(), e);
+            return FetchResult.failure(FetchResult.Outcome.CLIENT_ERROR, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static boolean isUnresolved(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof UnknownHostException || c instanceof UnresolvedAddressException) return true;
+        }
+        return false;
+    }
+
+    private static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) return -1;
+        try {
+            return Math.max(0, Long.parseLong(value.trim())) * 1000L;
+        } catch (NumberFormatException e) {
+            try {
+                long at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return Math.max(0, at - System.currentTimeMillis());
+            } catch (Exception ignore) {
+                return -1;
+            }
+        }
+    }
+
+    public long wireBytes() {
+        return wireBytes.get();
+    }
+
+    public long decodedBytes() {
+        return decodedBytes.get();
+    }
+
+    private static InputStream decode(InputStream in, String encoding) throws IOException {
+        switch (encoding) {
+            case "":
+            case "identity":
+                return in;
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in, 8192);
+            case "deflate": {
+                PushbackInputStream pb = new PushbackInputStream(in, 1);
+                int first = pb.read();
+                if (first < 0) return pb;
+                pb.unread(first);
+                boolean zlibWrapped = (first & 0x0F) == 8;
+                return new InflaterInputStream(pb, new Inflater(!zlibWrapped), 8192);
+            }
+            default:
+                throw new IOException("Unsupported Content-Encoding: " + encoding);
+        }
+    }
+
+    private static byte[] readBounded(InputStream in, long maxBytes, String url) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        byte[] buf = new byte[16 * 1024];
+        long total = 0;
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            total += n;
+            if (total > maxBytes) {
+                throw new BodyTooLargeException(url, maxBytes);
+            }
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    public static Charset detectCharset(String contentType, byte[] body) {
+        Charset fromHeader = headerCharset(contentType);
+        if (fromHeader != null) return fromHeader;
+
+        if (body != null && body.length >= 3
+                && (body[0] & 0xFF) == 0xEF && (body[1] & 0xFF) == 0xBB && (body[2] & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (body != null && body.length >= 2) {
+            if ((body[0] & 0xFF) == 0xFE && (body[1] & 0xFF) == 0xFF) return StandardCharsets.UTF_16BE;
+            if ((body[0] & 0xFF) == 0xFF && (body[1] & 0xFF) == 0xFE) return StandardCharsets.UTF_16LE;
+        }
+
+        if (body != null) {
+            String head = new String(body, 0, Math.min(SNIFF_BYTES, body.length), StandardCharsets.ISO_8859_1);
+            Matcher m = META_CHARSET.matcher(head);
+            if (m.find()) {
+                Charset cs = lookup(m.group(1));
+                if (cs != null) return cs;
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static Charset headerCharset(String contentType) {
+        if (contentType == null) return null;
+        String lower = contentType.toLowerCase(Locale.ROOT);
+        int i = lower.indexOf("charset=");
+        if (i < 0) return null;
+        String enc = lower.substring(i + 8).trim();
+        enc = enc.replace("\"", "").replace("'", "");
+        int semi = enc.indexOf(';');
+        if (semi >= 0) enc = enc.substring(0, semi).trim();
+        return lookup(enc);
+    }
+
+    private static Charset lookup(String name) {
+        try {
+            return Charset.forName(name);
+        } catch (Exception e) {
+            Logger.debug("Invalid charset: " + name);
+            return null;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
         }
-        return "";
     }
 }
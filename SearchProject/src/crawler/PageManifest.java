@@ -0,0 +1,135 @@
+package crawler;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import util.Logger;
+import util.Utils;
+
+public class PageManifest {
+    public static final String PAGES_FILE = "pages.tsv";
+    public static final String ANCHORS_FILE = "anchors.tsv";
+
+    private static final int MAX_ANCHOR_CHARS_PER_URL = 2000;
+
+    private final Map<String, String> urlByFile = new ConcurrentHashMap<>();
+    private final Map<String, Long> crcByFile = new ConcurrentHashMap<>();
+    private final Map<String, StringBuilder> anchorsByUrl = new ConcurrentHashMap<>();
+
+    public void recordPage(String fileName, String url) {
+        recordPage(fileName, url, -1);
+    }
+
+    public void recordPage(String fileName, String url, long crc) {
+        if (fileName == null || url == null) return;
+        urlByFile.put(fileName, url);
+        if (crc >= 0) crcByFile.put(fileName, crc);
+    }
+
+    public void recordAnchor(String targetUrl, String text) {
+        if (targetUrl == null || text == null || text.isEmpty()) return;
+        StringBuilder sb = anchorsByUrl.computeIfAbsent(targetUrl, k -> new StringBuilder());
+        synchronized (sb) {
+            if (sb.length() >= MAX_ANCHOR_CHARS_PER_URL) return;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(text, 0, Math.min(text.length(), MAX_ANCHOR_CHARS_PER_URL - sb.length()));
+        }
+    }
+
+    public String urlFor(String fileName) {
+        return urlByFile.get(fileName);
+    }
+
+    public long checksumFor(String fileName) {
+        Long crc = crcByFile.get(fileName);
+        return crc == null ? -1 : crc;
+    }
+
+    public String anchorTextFor(String url) {
+        if (url == null) return null;
+        StringBuilder sb = anchorsByUrl.get(url);
+        if (sb == null) return null;
+        synchronized (sb) {
+            return sb.toString();
+        }
+    }
+
+    public void save(Path dir) {
+        try {
+            Utils.writeAtomic(dir.resolve(PAGES_FILE), w -> {
+                try {
+                    for (Map.Entry<String, String> e : urlByFile.entrySet()) {
+                        w.write(clean(e.getKey()));
+                        w.write('\t');
+                        w.write(clean(e.getValue()));
+                        Long crc = crcByFile.get(e.getKey());
+                        if (crc != null) {
+                            w.write('\t');
+                            w.write(Long.toHexString(crc));
+                        }
+                        w.write('\n');
+                    }
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
+
+            Utils.writeAtomic(dir.resolve(ANCHORS_FILE), w -> {
+                try {
+                    for (String url : anchorsByUrl.keySet()) {
+                        w.write(clean(url));
+                        w.write('\t');
+                        w.write(clean(anchorTextFor(url)));
+                        w.write('\n');
+                    }
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
+        } catch (Exception e) {
+            Logger.error("Error saving page manifest: " + e.getMessage(), e);
+        }
+    }
+
+    public static PageManifest load(Path dir) {
+        PageManifest m = new PageManifest();
+        readTsv(dir.resolve(PAGES_FILE), (file, rest) -> {
+            int tab = rest.lastIndexOf('\t');
+            if (tab < 0) {
+                m.urlByFile.put(file, rest);
+                return;
+            }
+            m.urlByFile.put(file, rest.substring(0, tab));
+            try {
+                m.crcByFile.put(file, Long.parseLong(rest.substring(tab + 1), 16));
+            } catch (NumberFormatException e) {
+                Logger.warn("Bad checksum for " + file + " in " + PAGES_FILE);
+            }
+        });
+        readTsv(dir.resolve(ANCHORS_FILE), (url, text) -> m.anchorsByUrl.put(url, new StringBuilder(text)));
+        return m;
+    }
+
+    private static void readTsv(Path p, java.util.function.BiConsumer<String, String> sink) {
+        if (!Files.exists(p)) return;
+        try (BufferedReader r = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0) continue;
+                sink.accept(line.substring(0, tab), line.substring(tab + 1));
+            }
+        } catch (IOException e) {
+            Logger.warn("Failed to read " + p + ": " + e.getMessage());
+        }
+    }
+
+    private static String clean(String s) {
+        if (s == null) return "";
+        return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,118 @@
+package crawler;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import util.Logger;
+
+public class RobotsCache {
+    private final PageDownloader downloader;
+    private final String agent;
+    private final long minDelayMillis;
+
+    private final ConcurrentHashMap<String, CompletableFuture<RobotsRules>> rulesByOrigin = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, long[]> nextSlotByOrigin = new ConcurrentHashMap<>();
+
+    public RobotsCache(PageDownloader downloader, String agent, long minDelayMillis) {
+        this.downloader = downloader;
+        this.agent = agent;
+        this.minDelayMillis = Math.max(0, minDelayMillis);
+    }
+
+    public boolean isAllowed(String url) {
+        try {
+            URI u = new URI(url);
+            String path = u.getRawPath();
+            if (path == null || path.isEmpty()) path = "/";
+            if (u.getRawQuery() != null) path = path + "?" + u.getRawQuery();
+            return rulesFor(u).isAllowed(path);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public RobotsRules rulesFor(String url) {
+        try {
+            return rulesFor(new URI(url));
+        } catch (Exception e) {
+            return RobotsRules.allowAll();
+        }
+    }
+
+    private RobotsRules rulesFor(URI u) {
+        String origin = originOf(u);
+        if (origin == null) return RobotsRules.allowAll();
+
+        CompletableFuture<RobotsRules> f = rulesByOrigin.get(origin);
+        if (f == null) {
+            CompletableFuture<RobotsRules> mine = new CompletableFuture<>();
+            f = rulesByOrigin.putIfAbsent(origin, mine);
+            if (f == null) {
+                RobotsRules rules = load(origin);
+                mine.complete(rules);
+                return rules;
+            }
+        }
+        return f.join();
+    }
+
+    private RobotsRules load(String origin) {
+        String robotsUrl = origin + "/robots.txt";
+        try {
+            PageDownloader.Response res = downloader.fetch(robotsUrl, "text/plain,*/*;q=0.1");
+            int code = res.status();
+            if (code >= 200 && code < 300) {
+                String body = new String(res.body(), StandardCharsets.UTF_8);
+                RobotsRules rules = RobotsRules.parse(body, agent);
+                Logger.info("Loaded robots.txt for " + origin
+                        + (rules.crawlDelayMillis() > 0 ? " (crawl-delay " + rules.crawlDelayMillis() + " ms)" : ""));
+                return rules;
+            }
+            if (code >= 400 && code < 500) {
+                return RobotsRules.allowAll();
+            }
+            Logger.warn("robots.txt for " + origin + " returned HTTP " + code + "; treating host as disallowed");
+            return RobotsRules.disallowAll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RobotsRules.disallowAll();
+        } catch (Exception e) {
+            Logger.warn("Failed to fetch " + robotsUrl + ": " + e.getMessage() + "; treating host as disallowed");
+            return RobotsRules.disallowAll();
+        }
+    }
+
+    public void awaitTurn(String url) throws InterruptedException {
+        URI u;
+        try {
+            u = new URI(url);
+        } catch (Exception e) {
+            return;
+        }
+        String origin = originOf(u);
+        if (origin == null) return;
+
+        long delay = Math.max(minDelayMillis, rulesFor(u).crawlDelayMillis());
+        if (delay <= 0) return;
+
+        long[] slot = nextSlotByOrigin.computeIfAbsent(origin, k -> new long[1]);
+        long wait;
+        synchronized (slot) {
+            long now = System.currentTimeMillis();
+            long start = Math.max(now, slot[0]);
+            slot[0] = start + delay;
+            wait = start - now;
+        }
+        if (wait > 0) Thread.sleep(wait);
+    }
+
+    static String originOf(URI u) {
+        String scheme = u.getScheme();
+        String host = u.getHost();
+        if (scheme == null || host == null) return null;
+        String origin = scheme.toLowerCase(Locale.ROOT) + "://" + host.toLowerCase(Locale.ROOT);
+        return u.getPort() >= 0 ? origin + ":" + u.getPort() : origin;
+    }
+}
@@ -0,0 +1,176 @@
+package crawler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class RobotsRules {
+
+    private static final RobotsRules ALLOW_ALL = new RobotsRules(Collections.emptyList(), -1, Collections.emptyList());
+    private static final RobotsRules DISALLOW_ALL = new RobotsRules(
+            Collections.singletonList(new Rule("/", false)), -1, Collections.emptyList());
+
+    private static class Rule {
+        final String path;
+        final boolean allow;
+        final Pattern regex;
+
+        Rule(String path, boolean allow) {
+            this.path = path;
+            this.allow = allow;
+            this.regex = (path.indexOf('*') >= 0 || path.endsWith("$")) ? toRegex(path) : null;
+        }
+
+        boolean matches(String target) {
+            if (regex == null) return target.startsWith(path);
+            return regex.matcher(target).lookingAt();
+        }
+
+        private static Pattern toRegex(String path) {
+            StringBuilder sb = new StringBuilder();
+            boolean anchored = path.endsWith("$");
+            String p = anchored ? path.substring(0, path.length() - 1) : path;
+            for (String part : p.split("\\*", -1)) {
+                if (sb.length() > 0) sb.append(".*");
+                sb.append(Pattern.quote(part));
+            }
+            if (anchored) sb.append('$');
+            return Pattern.compile(sb.toString());
+        }
+    }
+
+    private final List<Rule> rules;
+    private final long crawlDelayMillis;
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, long crawlDelayMillis, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelayMillis = crawlDelayMillis;
+        this.sitemaps = sitemaps;
+    }
+
+    public static RobotsRules allowAll() {
+        return ALLOW_ALL;
+    }
+
+    public static RobotsRules disallowAll() {
+        return DISALLOW_ALL;
+    }
+
+    public static RobotsRules parse(String content, String agent) {
+        if (content == null || content.isEmpty()) return ALLOW_ALL;
+        String ourAgent = productToken(agent);
+
+        List<Rule> specific = new ArrayList<>();
+        List<Rule> generic = new ArrayList<>();
+        long specificDelay = -1;
+        long genericDelay = -1;
+        boolean sawSpecific = false;
+        List<String> sitemaps = new ArrayList<>();
+
+        boolean inSpecific = false;
+        boolean inGeneric = false;
+        boolean lastWasAgent = false;
+
+        for (String rawLine : content.split("\\r?\\n|\\r")) {
+            String line = rawLine;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            int colon = line.indexOf(':');
+            if (colon <= 0) continue;
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (key) {
+                case "user-agent": {
+                    if (!lastWasAgent) {
+                        inSpecific = false;
+                        inGeneric = false;
+                    }
+                    String ua = productToken(value);
+                    if (ua.equals("*")) {
+                        inGeneric = true;
+                    } else if (!ourAgent.isEmpty() && ua.equals(ourAgent)) {
+                        inSpecific = true;
+                        sawSpecific = true;
+                    }
+                    lastWasAgent = true;
+                    break;
+                }
+                case "allow":
+                case "disallow": {
+                    lastWasAgent = false;
+                    boolean allow = key.equals("allow");
+                    if (value.isEmpty()) break;
+                    Rule r = new Rule(value, allow);
+                    if (inSpecific) specific.add(r);
+                    if (inGeneric) generic.add(r);
+                    break;
+                }
+                case "crawl-delay": {
+                    lastWasAgent = false;
+                    long ms = parseDelay(value);
+                    if (inSpecific) specificDelay = ms;
+                    if (inGeneric) genericDelay = ms;
+                    break;
+                }
+                case "sitemap":
+                    lastWasAgent = false;
+                    if (!value.isEmpty()) sitemaps.add(value);
+                    break;
+                default:
+                    lastWasAgent = false;
+                    break;
+            }
+        }
+
+        List<Rule> chosen = sawSpecific ? specific : generic;
+        long delay = sawSpecific ? specificDelay : genericDelay;
+        chosen.sort((a, b) -> {
+            int c = Integer.compare(b.path.length(), a.path.length());
+            return c != 0 ? c : Boolean.compare(b.allow, a.allow);
+        });
+        return new RobotsRules(chosen, delay, sitemaps);
+    }
+
+    private static String productToken(String agent) {
+        if (agent == null) return "";
+        String a = agent.trim();
+        int end = 0;
+        while (end < a.length() && a.charAt(end) != '/' && !Character.isWhitespace(a.charAt(end))) end++;
+        return a.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static long parseDelay(String value) {
+        try {
+            double seconds = Double.parseDouble(value);
+            if (seconds < 0) return -1;
+            return (long) Math.min(seconds * 1000.0, 60_000.0);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public boolean isAllowed(String pathAndQuery) {
+        String target = (pathAndQuery == null || pathAndQuery.isEmpty()) ? "/" : pathAndQuery;
+        if (target.equals("/robots.txt")) return true;
+        for (Rule r : rules) {
+            if (r.matches(target)) {
+                return r.allow;
+            }
+        }
+        return true;
+    }
+
+    public long crawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+
+    public List<String> sitemaps() {
+        return Collections.unmodifiableList(sitemaps);
+    }
+}
@@ -21,6 +21,53 @@ public class SimpleLinkExtractor implements LinkExtractor {
     private static final Pattern META_REFRESH_URL =
         Pattern.compile("(?is)<meta\\s+[^>]*http-equiv\\s*=\\s*(?:\"refresh\"|'refresh'|refresh)[^>]*content\\s*=\\s*(?:\"|')\\s*\\d+\\s*;\\s*url\\s*=\\s*([^\"'>\\s;]+)");
 
+    private static final Pattern ANCHOR_PATTERN =
+        Pattern.compile("(?is)<\\s*a\\b[^>]*?\\bhref\\s*=\\s*(\"([^\"]*)\"|'([^']*)'|([^\\s>]+))[^>]*>(.*?)<\\s*/\\s*a\\s*>");
+
+    private static final Pattern TAG_PATTERN = Pattern.compile("(?s)<[^>]*>");
+
+    private static final int MAX_ANCHOR_CHARS = 200;
+
+    @Override
+    public List<Link> extractAnchors(String htmlContent, String baseUrl) {
+        List<Link> anchors = new ArrayList<>();
+        if (htmlContent == null || baseUrl == null || baseUrl.isEmpty()) return anchors;
+
+        URI base;
+        try {
+            base = new URI(baseUrl);
+        } catch (URISyntaxException e) {
+            Logger.warn("Invalid base URL: " + baseUrl);
+            return anchors;
+        }
+
+        Matcher m = ANCHOR_PATTERN.matcher(htmlContent);
+        while (m.find()) {
+            String raw = firstNonNull(m.group(2), m.group(3), m.group(4));
+            if (raw == null) continue;
+            raw = raw.trim();
+            if (raw.isEmpty() || raw.startsWith("#")) continue;
+
+            String text = TAG_PATTERN.matcher(m.group(5)).replaceAll(" ")
+                    .replace("&nbsp;", " ")
+                    .replace("&amp;", "&")
+                    .replaceAll("\\s+", " ")
+                    .trim();
+            if (text.isEmpty()) continue;
+            if (text.length() > MAX_ANCHOR_CHARS) text = text.substring(0, MAX_ANCHOR_CHARS);
+
+            try {
+                String abs = base.resolve(raw).toString();
+                if (abs.startsWith("http://") || abs.startsWith("https://")) {
+                    anchors.add(new Link(abs, text));
+                }
+            } catch (Exception e) {
+                Logger.debug("Failed to resolve URL: " + raw + " against base " + base + " (" + e.getMessage() + ")");
+            }
+        }
+        return anchors;
+    }
+
     @Override
     public List<String> extractLinks(String htmlContent, String baseUrl) {
         List<String> links = new ArrayList<>();
@@ -0,0 +1,86 @@
+package crawler;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import util.Logger;
+
+public class SitemapLoader {
+    private static final Pattern LOC_PATTERN = Pattern.compile("(?is)<loc>\\s*(.*?)\\s*</loc>");
+    private static final Pattern INDEX_PATTERN = Pattern.compile("(?is)<sitemapindex\\b");
+    private static final int MAX_INDEX_DEPTH = 2;
+    private static final int MAX_SITEMAP_BYTES = 50 * 1024 * 1024;
+
+    private final PageDownloader downloader;
+
+    public SitemapLoader(PageDownloader downloader) {
+        this.downloader = downloader;
+    }
+
+    public List<String> load(List<String> sitemapUrls, int maxUrls) {
+        List<String> out = new ArrayList<>();
+        for (String s : sitemapUrls) {
+            if (out.size() >= maxUrls) break;
+            load(s, maxUrls, 0, out);
+        }
+        return out;
+    }
+
+    private void load(String sitemapUrl, int maxUrls, int depth, List<String> out) {
+        String xml = fetch(sitemapUrl);
+        if (xml == null) return;
+
+        boolean isIndex = INDEX_PATTERN.matcher(xml).find();
+        Matcher m = LOC_PATTERN.matcher(xml);
+        while (m.find() && out.size() < maxUrls) {
+            String loc = unescape(m.group(1));
+            if (!(loc.startsWith("http://") || loc.startsWith("https://"))) continue;
+            if (isIndex) {
+                if (depth < MAX_INDEX_DEPTH) load(loc, maxUrls, depth + 1, out);
+            } else {
+                out.add(loc);
+            }
+        }
+    }
+
+    private String fetch(String url) {
+        try {
+            PageDownloader.Response res = downloader.fetch(url, "application/xml,text/xml;q=0.9,*/*;q=0.1", MAX_SITEMAP_BYTES);
+            if (res.status() < 200 || res.status() >= 300) {
+                Logger.debug("Sitemap " + url + " returned HTTP " + res.status());
+                return null;
+            }
+            byte[] body = res.body();
+            if (body.length >= 2 && (body[0] & 0xFF) == 0x1f && (body[1] & 0xFF) == 0x8b) {
+                body = gunzip(body);
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            Logger.warn("Failed to load sitemap " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readNBytes(MAX_SITEMAP_BYTES);
+        }
+    }
+
+    private static String unescape(String s) {
+        return s.replace("&amp;", "&")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'");
+    }
+}
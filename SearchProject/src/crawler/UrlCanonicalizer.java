@@ -0,0 +1,395 @@
+package crawler;
+import java.net.IDN;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public class UrlCanonicalizer {
+
+    public static final String DEFAULT_STRIP_PARAMS =
+            "utm_*,gclid,dclid,fbclid,msclkid,yclid,igshid,mc_cid,mc_eid,_ga,_gl,"
+            + "sessionid,session_id,sid,jsessionid,phpsessid,aspsessionid*,cfid,cftoken";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private static final class Scratch {
+        final StringBuilder out = new StringBuilder(256);
+        final StringBuilder params = new StringBuilder(128);
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int[] order = new int[16];
+        String lastHost;
+        String lastSiteHost;
+    }
+
+    private final String[] stripExact;
+    private final String[] stripPrefix;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public UrlCanonicalizer(List<String> stripParams) {
+        List<String> exact = new ArrayList<>();
+        List<String> prefix = new ArrayList<>();
+        for (String p : stripParams) {
+            String name = p.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) continue;
+            if (name.endsWith("*")) {
+                prefix.add(name.substring(0, name.length() - 1));
+            } else {
+                exact.add(name);
+            }
+        }
+        this.stripExact = exact.toArray(new String[0]);
+        this.stripPrefix = prefix.toArray(new String[0]);
+    }
+
+    public static UrlCanonicalizer fromSystemProperties() {
+        String spec = System.getProperty("crawler.stripParams", DEFAULT_STRIP_PARAMS);
+        return new UrlCanonicalizer(Arrays.asList(spec.split(",")));
+    }
+
+    public String normalize(String raw) {
+        CanonicalUrl c = canonicalize(raw);
+        return c == null ? raw : c.url();
+    }
+
+    public CanonicalUrl canonicalize(String raw) {
+        if (raw == null) return null;
+        int start = 0;
+        int end = raw.length();
+        while (start < end && raw.charAt(start) <= ' ') start++;
+        while (end > start && raw.charAt(end - 1) <= ' ') end--;
+
+        int colon = -1;
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c == ':') {
+                colon = i;
+                break;
+            }
+            if (!(isAlpha(c) || (i > start && (isDigit(c) || c == '+' || c == '-' || c == '.')))) return null;
+        }
+        if (colon < 0 || colon + 2 >= end || raw.charAt(colon + 1) != '/' || raw.charAt(colon + 2) != '/') return null;
+
+        String scheme;
+        int defaultPort;
+        if (colon - start == 4 && raw.regionMatches(true, start, "http", 0, 4)) {
+            scheme = "http";
+            defaultPort = 80;
+        } else if (colon - start == 5 && raw.regionMatches(true, start, "https", 0, 5)) {
+            scheme = "https";
+            defaultPort = 443;
+        } else {
+            return null;
+        }
+
+        int authStart = colon + 3;
+        int authEnd = authStart;
+        while (authEnd < end) {
+            char c = raw.charAt(authEnd);
+            if (c == '/' || c == '?' || c == '#') break;
+            authEnd++;
+        }
+        int hostStart = authStart;
+        for (int i = authEnd - 1; i >= authStart; i--) {
+            if (raw.charAt(i) == '@') {
+                hostStart = i + 1;
+                break;
+            }
+        }
+
+        int hostEnd = authEnd;
+        int port = -1;
+        int portSep = -1;
+        if (hostStart < authEnd && raw.charAt(hostStart) == '[') {
+            int close = raw.indexOf(']', hostStart);
+            if (close < 0 || close >= authEnd) return null;
+            hostEnd = close + 1;
+            if (hostEnd < authEnd) {
+                if (raw.charAt(hostEnd) != ':') return null;
+                portSep = hostEnd;
+            }
+        } else {
+            for (int i = hostStart; i < authEnd; i++) {
+                if (raw.charAt(i) == ':') {
+                    portSep = i;
+                    hostEnd = i;
+                    break;
+                }
+            }
+        }
+        if (portSep >= 0 && portSep + 1 < authEnd) {
+            port = 0;
+            for (int i = portSep + 1; i < authEnd; i++) {
+                char c = raw.charAt(i);
+                if (!isDigit(c) || port > 6553) return null;
+                port = port * 10 + (c - '0');
+            }
+            if (port > 65535) return null;
+            if (port == defaultPort) port = -1;
+        }
+        while (hostEnd > hostStart && raw.charAt(hostEnd - 1) == '.') hostEnd--;
+        if (hostEnd <= hostStart) return null;
+
+        Scratch s = scratch.get();
+        String host = host(s, raw, hostStart, hostEnd);
+        if (host == null) return null;
+
+        StringBuilder out = s.out;
+        out.setLength(0);
+        out.append(scheme).append("://").append(host);
+        if (port >= 0) out.append(':').append(port);
+
+        int pathEnd = authEnd;
+        while (pathEnd < end) {
+            char c = raw.charAt(pathEnd);
+            if (c == '?' || c == '#') break;
+            pathEnd++;
+        }
+        appendPath(out, raw, authEnd, pathEnd);
+
+        if (pathEnd < end && raw.charAt(pathEnd) == '?') {
+            int queryEnd = raw.indexOf('#', pathEnd + 1);
+            if (queryEnd < 0 || queryEnd > end) queryEnd = end;
+            appendQuery(s, raw, pathEnd + 1, queryEnd);
+        }
+
+        String url = (start == 0 && end == raw.length() && raw.contentEquals(out)) ? raw : out.toString();
+        return new CanonicalUrl(url, scheme, host, s.lastSiteHost, port);
+    }
+
+    private static String host(Scratch s, String raw, int from, int to) {
+        int len = to - from;
+        String last = s.lastHost;
+        if (last != null && last.length() == len && raw.regionMatches(true, from, last, 0, len)) {
+            return last;
+        }
+
+        boolean copy = false;
+        boolean ascii = true;
+        for (int i = from; i < to; i++) {
+            char c = raw.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                copy = true;
+            } else if (c <= ' ' || c == '%' || c == '\\' || c == '<' || c == '>' || c == '"') {
+                return null;
+            } else if (c > 0x7F) {
+                ascii = false;
+            }
+        }
+        String host = raw.substring(from, to);
+        if (!ascii) {
+            try {
+                host = IDN.toASCII(host);
+            } catch (IllegalArgumentException ignore) {
+                return null;
+            }
+            if (host.isEmpty() || host.startsWith(".") || host.contains("..")) return null;
+            copy = true;
+        }
+        if (copy) host = host.toLowerCase(Locale.ROOT);
+
+        s.lastHost = host;
+        s.lastSiteHost = host.startsWith("www.") ? host.substring(4) : host;
+        return host;
+    }
+
+    private void appendPath(StringBuilder out, String raw, int from, int to) {
+        int base = out.length();
+        int i = from;
+        if (i < to && raw.charAt(i) == '/') i++;
+
+        while (true) {
+            int segEnd = i;
+            while (segEnd < to && raw.charAt(segEnd) != '/') segEnd++;
+
+            int matrix = -1;
+            for (int k = i; k < segEnd; k++) {
+                if (raw.charAt(k) == ';') {
+                    matrix = k;
+                    break;
+                }
+            }
+            int keepEnd = segEnd;
+            if (matrix >= 0) {
+                int nameEnd = matrix + 1;
+                while (nameEnd < segEnd && raw.charAt(nameEnd) != '=') nameEnd++;
+                if (isStripped(raw, matrix + 1, nameEnd)) keepEnd = matrix;
+            }
+
+            int segStart = out.length();
+            out.append('/');
+            appendEncoded(out, raw, i, keepEnd, false);
+            int segLen = out.length() - segStart - 1;
+
+            if (segLen == 1 && out.charAt(segStart + 1) == '.') {
+                out.setLength(segStart);
+            } else if (segLen == 2 && out.charAt(segStart + 1) == '.' && out.charAt(segStart + 2) == '.') {
+                out.setLength(segStart);
+                int slash = out.lastIndexOf("/");
+                out.setLength(slash >= base ? slash : base);
+            }
+
+            if (segEnd >= to) break;
+            i = segEnd + 1;
+        }
+
+        if (out.length() == base) {
+            out.append('/');
+        } else if (out.length() > base + 1 && out.charAt(out.length() - 1) == '/') {
+            out.setLength(out.length() - 1);
+        }
+    }
+
+    private void appendQuery(Scratch s, String raw, int from, int to) {
+        StringBuilder params = s.params;
+        params.setLength(0);
+        int n = 0;
+
+        int i = from;
+        while (i <= to) {
+            int pEnd = i;
+            while (pEnd < to && raw.charAt(pEnd) != '&') pEnd++;
+            if (pEnd > i) {
+                int nameEnd = i;
+                while (nameEnd < pEnd && raw.charAt(nameEnd) != '=') nameEnd++;
+                if (!isStripped(raw, i, nameEnd)) {
+                    if (n == s.starts.length) {
+                        s.starts = Arrays.copyOf(s.starts, n * 2);
+                        s.ends = Arrays.copyOf(s.ends, n * 2);
+                        s.order = Arrays.copyOf(s.order, n * 2);
+                    }
+                    s.starts[n] = params.length();
+                    appendEncoded(params, raw, i, pEnd, true);
+                    s.ends[n] = params.length();
+                    s.order[n] = n;
+                    n++;
+                }
+            }
+            i = pEnd + 1;
+        }
+        if (n == 0) return;
+
+        for (int a = 1; a < n; a++) {
+            int cur = s.order[a];
+            int b = a - 1;
+            while (b >= 0 && compareNames(params, s.starts[s.order[b]], s.ends[s.order[b]], s.starts[cur], s.ends[cur]) > 0) {
+                s.order[b + 1] = s.order[b];
+                b--;
+            }
+            s.order[b + 1] = cur;
+        }
+
+        StringBuilder out = s.out;
+        for (int k = 0; k < n; k++) {
+            out.append(k == 0 ? '?' : '&');
+            int p = s.order[k];
+            out.append(params, s.starts[p], s.ends[p]);
+        }
+    }
+
+    private static int compareNames(CharSequence buf, int aStart, int aEnd, int bStart, int bEnd) {
+        int a = aStart;
+        int b = bStart;
+        while (true) {
+            boolean aDone = a >= aEnd || buf.charAt(a) == '=';
+            boolean bDone = b >= bEnd || buf.charAt(b) == '=';
+            if (aDone || bDone) return aDone == bDone ? 0 : (aDone ? -1 : 1);
+            int c = buf.charAt(a) - buf.charAt(b);
+            if (c != 0) return c;
+            a++;
+            b++;
+        }
+    }
+
+    private boolean isStripped(String raw, int from, int to) {
+        int len = to - from;
+        if (len <= 0) return false;
+        for (String name : stripExact) {
+            if (name.length() == len && raw.regionMatches(true, from, name, 0, len)) return true;
+        }
+        for (String prefix : stripPrefix) {
+            if (prefix.length() <= len && raw.regionMatches(true, from, prefix, 0, prefix.length())) return true;
+        }
+        return false;
+    }
+
+    private static void appendEncoded(StringBuilder out, String raw, int from, int to, boolean query) {
+        for (int i = from; i < to; i++) {
+            char c = raw.charAt(i);
+            if (c == '%') {
+                int hi = i + 2 < to ? hexValue(raw.charAt(i + 1)) : -1;
+                int lo = hi >= 0 ? hexValue(raw.charAt(i + 2)) : -1;
+                if (lo < 0) {
+                    out.append("%25");
+                    continue;
+                }
+                int v = (hi << 4) | lo;
+                if (isUnreserved(v)) {
+                    out.append((char) v);
+                } else {
+                    appendEscape(out, v);
+                }
+                i += 2;
+            } else if (c < 0x80) {
+                if (isUnreserved(c) || isSubDelim(c) || c == ':' || c == '@' || (query && (c == '/' || c == '?'))) {
+                    out.append(c);
+                } else {
+                    appendEscape(out, c);
+                }
+            } else {
+                int cp = c;
+                if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(raw.charAt(i + 1))) {
+                    cp = Character.toCodePoint(c, raw.charAt(++i));
+                } else if (Character.isSurrogate(c)) {
+                    cp = 0xFFFD;
+                }
+                appendUtf8(out, cp);
+            }
+        }
+    }
+
+    private static void appendUtf8(StringBuilder out, int cp) {
+        if (cp < 0x800) {
+            appendEscape(out, 0xC0 | (cp >> 6));
+            appendEscape(out, 0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            appendEscape(out, 0xE0 | (cp >> 12));
+            appendEscape(out, 0x80 | ((cp >> 6) & 0x3F));
+            appendEscape(out, 0x80 | (cp & 0x3F));
+        } else {
+            appendEscape(out, 0xF0 | (cp >> 18));
+            appendEscape(out, 0x80 | ((cp >> 12) & 0x3F));
+            appendEscape(out, 0x80 | ((cp >> 6) & 0x3F));
+            appendEscape(out, 0x80 | (cp & 0x3F));
+        }
+    }
+
+    private static void appendEscape(StringBuilder out, int b) {
+        out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static boolean isAlpha(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isUnreserved(int c) {
+        return isAlpha(c) || isDigit(c) || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isSubDelim(int c) {
+        return c == '!' || c == '$' || c == '&' || c == '\'' || c == '(' || c == ')'
+                || c == '*' || c == '+' || c == ',' || c == ';' || c == '=';
+    }
+}
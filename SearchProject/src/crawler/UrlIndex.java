@@ -0,0 +1,84 @@
+package crawler;
+import java.util.Arrays;
+
+public final class UrlIndex {
+    private String[] urls;
+    private int[] hashes;
+    private int[] slots;
+    private int size;
+
+    public UrlIndex() {
+        this(16);
+    }
+
+    public UrlIndex(int expected) {
+        int cap = 16;
+        while (cap < expected * 2) cap <<= 1;
+        this.slots = new int[cap];
+        this.urls = new String[Math.max(8, expected)];
+        this.hashes = new int[urls.length];
+    }
+
+    public static UrlIndex of(String[] urls) {
+        UrlIndex index = new UrlIndex(urls.length);
+        for (String u : urls) index.add(u);
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String url(int id) {
+        return urls[id];
+    }
+
+    public String[] urls() {
+        return Arrays.copyOf(urls, size);
+    }
+
+    public int get(String url) {
+        int h = hash(url);
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == h && urls[id].equals(url)) return id;
+        }
+    }
+
+    public int add(String url) {
+        if (size * 2 >= slots.length) rehash(slots.length * 2);
+        int h = hash(url);
+        int mask = slots.length - 1;
+        int i = h & mask;
+        for (; slots[i] != 0; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (hashes[id] == h && urls[id].equals(url)) return id;
+        }
+        if (size == urls.length) {
+            urls = Arrays.copyOf(urls, size + (size >> 1));
+            hashes = Arrays.copyOf(hashes, urls.length);
+        }
+        int id = size++;
+        urls[id] = url;
+        hashes[id] = h;
+        slots[i] = id + 1;
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = id + 1;
+        }
+    }
+
+    private static int hash(String url) {
+        int h = url.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,267 @@
+package crawler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.Logger;
+
+public class WorkerLink implements LinkRouter, Closeable {
+
+    public interface Node {
+        void accept(String url, int depth);
+
+        void stop();
+
+        long pagesCrawled();
+
+        int queued();
+
+        long bytesFetched();
+
+        boolean isIdle();
+    }
+
+    private static final class Batch {
+        final List<String> urls = new ArrayList<>();
+        final List<Integer> depths = new ArrayList<>();
+    }
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int partition;
+    private final int partitions;
+    private final String runId;
+    private final Properties config;
+    private final int batchSize;
+    private final long flushMillis;
+
+    private final Batch[] outbox;
+    private final Set<String> forwarded = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile Node node;
+    private volatile boolean closed;
+
+    private WorkerLink(Socket socket, DataInputStream in, DataOutputStream out, int partition, int partitions,
+                       String runId, Properties config, int batchSize, long flushMillis) {
+        this.socket = socket;
+        this.in = in;
+        this.out = out;
+        this.partition = partition;
+        this.partitions = partitions;
+        this.runId = runId;
+        this.config = config;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushMillis = Math.max(10, flushMillis);
+        this.outbox = new Batch[partitions];
+        for (int i = 0; i < partitions; i++) outbox[i] = new Batch();
+    }
+
+    public static WorkerLink connect(String host, int port, String name, int batchSize, long flushMillis)
+            throws IOException {
+        Socket s = new Socket(host, port);
+        try {
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 64 * 1024));
+
+            out.writeByte(ClusterProtocol.HELLO);
+            out.writeInt(ClusterProtocol.MAGIC);
+            out.writeInt(ClusterProtocol.VERSION);
+            out.writeUTF(name);
+            out.flush();
+
+            if (in.readByte() != ClusterProtocol.ASSIGN) throw new IOException("coordinator did not send an assignment");
+            int partition = in.readInt();
+            int partitions = in.readInt();
+            String runId = in.readUTF();
+            Properties config = ClusterProtocol.readProperties(in);
+            return new WorkerLink(s, in, out, partition, partitions, runId, config, batchSize, flushMillis);
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+    }
+
+    public int partition() {
+        return partition;
+    }
+
+    public int partitions() {
+        return partitions;
+    }
+
+    public String runId() {
+        return runId;
+    }
+
+    public Properties config() {
+        return config;
+    }
+
+    public void start(Node node) {
+        this.node = node;
+
+        Thread reader = new Thread(this::readLoop, "worker-link-in");
+        reader.setDaemon(true);
+        reader.start();
+
+        Thread flusher = new Thread(this::flushLoop, "worker-link-out");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public boolean isLocal(String host) {
+        return ClusterProtocol.partitionOf(host, partitions) == partition;
+    }
+
+    @Override
+    public void forward(String url, String host, int depth) {
+        if (!forwarded.add(url)) return;
+        int target = ClusterProtocol.partitionOf(host, partitions);
+        Batch b = outbox[target];
+        boolean full;
+        synchronized (b) {
+            b.urls.add(url);
+            b.depths.add(depth);
+            full = b.urls.size() >= batchSize;
+        }
+        if (full) flush(target);
+    }
+
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    public void done(long pages, String pagesDir) {
+        synchronized (out) {
+            try {
+                out.writeByte(ClusterProtocol.DONE);
+                out.writeLong(pages);
+                out.writeUTF(pagesDir);
+                out.flush();
+            } catch (IOException e) {
+                Logger.warn("Failed to report completion to coordinator: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == ClusterProtocol.LINKS) {
+                    int n = in.readInt();
+                    for (int i = 0; i < n; i++) {
+                        String url = in.readUTF();
+                        int depth = in.readInt();
+                        node.accept(url, depth);
+                        received.incrementAndGet();
+                    }
+                } else if (type == ClusterProtocol.STOP) {
+                    break;
+                } else {
+                    throw new IOException("unexpected message " + type);
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) Logger.error("Lost connection to coordinator: " + e.getMessage());
+        }
+        node.stop();
+        stopped.countDown();
+    }
+
+    private void flushLoop() {
+        while (stopped.getCount() > 0 && !closed) {
+            try {
+                Thread.sleep(flushMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (int t = 0; t < partitions; t++) flush(t);
+            reportProgress();
+        }
+    }
+
+    private void reportProgress() {
+        long in = received.get();
+        boolean idle = node.isIdle() && outboxEmpty();
+        synchronized (out) {
+            try {
+                out.writeByte(ClusterProtocol.PROGRESS);
+                out.writeLong(node.pagesCrawled());
+                out.writeInt(node.queued());
+                out.writeLong(sent.get());
+                out.writeLong(in);
+                out.writeLong(node.bytesFetched());
+                out.writeBoolean(idle);
+                out.flush();
+            } catch (IOException e) {
+                if (!closed) Logger.warn("Failed to report progress: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean outboxEmpty() {
+        for (Batch b : outbox) {
+            synchronized (b) {
+                if (!b.urls.isEmpty()) return false;
+            }
+        }
+        return true;
+    }
+
+    private void flush(int target) {
+        Batch b = outbox[target];
+        synchronized (out) {
+            String[] urls;
+            int[] depths;
+            synchronized (b) {
+                if (b.urls.isEmpty()) return;
+                urls = b.urls.toArray(new String[0]);
+                depths = new int[urls.length];
+                for (int i = 0; i < depths.length; i++) depths[i] = b.depths.get(i);
+                b.urls.clear();
+                b.depths.clear();
+            }
+            try {
+                out.writeByte(ClusterProtocol.LINKS);
+                out.writeInt(target);
+                out.writeInt(urls.length);
+                for (int i = 0; i < urls.length; i++) {
+                    out.writeUTF(urls[i]);
+                    out.writeInt(depths[i]);
+                }
+                out.flush();
+                sent.addAndGet(urls.length);
+            } catch (IOException e) {
+                if (!closed) Logger.warn("Failed to forward " + urls.length + " links: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package indexer;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+public interface Analyzer {
+    List<String> analyze(String text);
+
+    default void analyze(String text, BiConsumer<String, String> wordAndTerm) {
+        for (String term : analyze(text)) wordAndTerm.accept(term, term);
+    }
+
+    default String fold(String token) {
+        return token.toLowerCase(Locale.ROOT);
+    }
+}
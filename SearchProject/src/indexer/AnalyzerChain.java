@@ -0,0 +1,62 @@
+package indexer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+
+public class AnalyzerChain implements Analyzer {
+    private final TextParser tokenizer = new TextParser();
+    private final List<TokenFilter> filters;
+
+    public AnalyzerChain(TokenFilter... filters) {
+        this(Arrays.asList(filters));
+    }
+
+    public AnalyzerChain(List<TokenFilter> filters) {
+        this.filters = Collections.unmodifiableList(new ArrayList<>(filters));
+    }
+
+    @Override
+    public List<String> analyze(String text) {
+        List<String> tokens = tokenizer.tokenize(text);
+        if (filters.isEmpty()) return tokens;
+
+        List<String> out = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            String t = token;
+            for (TokenFilter f : filters) {
+                t = f.apply(t);
+                if (t == null || t.isEmpty()) break;
+            }
+            if (t != null && !t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    @Override
+    public void analyze(String text, BiConsumer<String, String> wordAndTerm) {
+        for (String token : tokenizer.tokenize(text)) {
+            String t = token;
+            for (TokenFilter f : filters) {
+                t = f.apply(t);
+                if (t == null || t.isEmpty()) break;
+            }
+            if (t != null && !t.isEmpty()) wordAndTerm.accept(fold(token), t);
+        }
+    }
+
+    @Override
+    public String fold(String token) {
+        String t = token.toLowerCase(Locale.ROOT);
+        for (TokenFilter f : filters) {
+            if (f.folds()) t = f.apply(t);
+        }
+        return t;
+    }
+
+    public List<TokenFilter> filters() {
+        return filters;
+    }
+}
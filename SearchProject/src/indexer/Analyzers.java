@@ -0,0 +1,54 @@
+package indexer;
+import java.util.Locale;
+
+import util.Logger;
+
+public final class Analyzers {
+
+    private Analyzers() {}
+
+    public static Analyzer defaultAnalyzer() {
+        return forLanguage(defaultLanguage());
+    }
+
+    public static String defaultLanguage() {
+        return language(System.getProperty("analyzer.lang", "de"));
+    }
+
+    public static String language(String lang) {
+        String l = (lang == null) ? "" : lang.trim().toLowerCase(Locale.ROOT);
+        switch (l) {
+            case "de":
+            case "german":
+                return "de";
+            case "en":
+            case "english":
+                return "en";
+            case "simple":
+            case "none":
+                return "simple";
+            default:
+                Logger.warn("Unknown analyzer language '" + lang + "'; using simple analyzer");
+                return "simple";
+        }
+    }
+
+    public static Analyzer forLanguage(String lang) {
+        switch (language(lang)) {
+            case "de":
+                return new AnalyzerChain(
+                        new UnicodeNormalizer(),
+                        new StopwordFilter(StopwordFilter.GERMAN, StopwordFilter.ENGLISH),
+                        new GermanStemmer(),
+                        new AsciiFolder());
+            case "en":
+                return new AnalyzerChain(
+                        new UnicodeNormalizer(),
+                        new StopwordFilter(StopwordFilter.ENGLISH, StopwordFilter.GERMAN),
+                        new EnglishStemmer(),
+                        new AsciiFolder());
+            default:
+                return new AnalyzerChain(new UnicodeNormalizer());
+        }
+    }
+}
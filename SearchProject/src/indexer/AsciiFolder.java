@@ -0,0 +1,42 @@
+package indexer;
+import java.text.Normalizer;
+
+public class AsciiFolder implements TokenFilter {
+    @Override
+    public String apply(String token) {
+        int i = 0;
+        while (i < token.length() && token.charAt(i) < 0x80) i++;
+        if (i == token.length()) return token;
+
+        StringBuilder sb = new StringBuilder(token.length() + 2);
+        sb.append(token, 0, i);
+        for (; i < token.length(); i++) {
+            char c = token.charAt(i);
+            switch (c) {
+                case '\u00e4': sb.append('a'); break;
+                case '\u00f6': sb.append('o'); break;
+                case '\u00fc': sb.append('u'); break;
+                case '\u00df': sb.append("ss"); break;
+                case '\u00e6': sb.append("ae"); break;
+                case '\u0153': sb.append("oe"); break;
+                case '\u00f8': sb.append('o'); break;
+                default:
+                    if (c < 0x80) {
+                        sb.append(c);
+                    } else {
+                        String d = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                        for (int k = 0; k < d.length(); k++) {
+                            char dc = d.charAt(k);
+                            if (Character.getType(dc) != Character.NON_SPACING_MARK) sb.append(dc);
+                        }
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean folds() {
+        return true;
+    }
+}
@@ -0,0 +1,443 @@
+package indexer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import util.Logger;
+import util.Utils;
+
+public class DocStore implements Closeable {
+    private static final int MAGIC = 0x44535432;
+    private static final int MAGIC_V3 = 0x44535433;
+    private static final int BLOCK_BYTES = 16 * 1024;
+    private static final int CACHED_BLOCKS = 64;
+
+    public static final class StoredDoc {
+        private final String title;
+        private final String url;
+        private final String text;
+
+        StoredDoc(String title, String url, String text) {
+            this.title = title;
+            this.url = url;
+            this.text = text;
+        }
+
+        public String title() {
+            return title;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public String text() {
+            return text;
+        }
+    }
+
+    private static final class Block {
+        final byte[] data;
+        final int[] starts;
+
+        Block(byte[] data, int[] starts) {
+            this.data = data;
+            this.starts = starts;
+        }
+    }
+
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(BLOCK_BYTES + 4096);
+    private int pendingDocs;
+
+    private byte[] compressed = new byte[0];
+    private long compressedLength;
+    private int[] blockFirstDoc = new int[16];
+    private long[] blockOffset = new long[17];
+    private int[] blockCrc = new int[16];
+    private int blocks;
+    private int docs;
+    private FileChannel source;
+    private long sourceStart;
+    private Path target;
+    private OutputStream sink;
+    private IOException sinkError;
+
+    private final Map<Integer, Block> cache = new LinkedHashMap<Integer, Block>(CACHED_BLOCKS, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Block> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    public synchronized void put(int docId, String title, String url, String text) {
+        if (source != null) throw new IllegalStateException("doc store is open read-only");
+        if (docId < docs) {
+            Logger.debug("Doc " + docId + " already stored; keeping the first version");
+            return;
+        }
+        while (docs < docId) append(null, null, null);
+        append(title, url, text);
+    }
+
+    private void append(String title, String url, String text) {
+        writeString(title);
+        writeString(url);
+        writeString(text);
+        pendingDocs++;
+        docs++;
+        if (pending.size() >= BLOCK_BYTES) sealBlock();
+    }
+
+    public synchronized StoredDoc get(int docId) {
+        if (sink != null) throw new IllegalStateException("doc store is open write-only");
+        if (docId < 0 || docId >= docs) return null;
+        if (pendingDocs > 0 && docId >= docs - pendingDocs) sealBlock();
+
+        int b = Arrays.binarySearch(blockFirstDoc, 0, blocks, docId);
+        if (b < 0) b = -b - 2;
+
+        Block block = cache.get(b);
+        if (block == null) {
+            block = decode(b);
+            if (block == null) return null;
+            cache.put(b, block);
+        }
+
+        int pos = block.starts[docId - blockFirstDoc[b]];
+        int[] cursor = {pos};
+        String title = readString(block.data, cursor);
+        String url = readString(block.data, cursor);
+        String text = readString(block.data, cursor);
+        return new StoredDoc(title, url, text);
+    }
+
+    public synchronized int size() {
+        return docs;
+    }
+
+    public synchronized long compressedBytes() {
+        return compressedLength;
+    }
+
+    public synchronized void save(Path file) throws IOException {
+        if (source != null || sink != null) throw new IllegalStateException("doc store is not in memory");
+        if (pendingDocs > 0) sealBlock();
+        Utils.ensureParentDirs(file);
+        Path tmp = tmpOf(file);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC_V3);
+            out.write(compressed, 0, (int) compressedLength);
+            writeIndex(out);
+        }
+        Utils.publish(tmp, file);
+    }
+
+    public static DocStore create(Path file) throws IOException {
+        Utils.ensureParentDirs(file);
+        DocStore store = new DocStore();
+        store.target = file;
+        store.sink = new BufferedOutputStream(Files.newOutputStream(tmpOf(file)), 1 << 16);
+        try {
+            new DataOutputStream(store.sink).writeInt(MAGIC_V3);
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    public synchronized void finish() throws IOException {
+        if (sink == null) throw new IllegalStateException("doc store was not created for writing");
+        if (pendingDocs > 0) sealBlock();
+        if (sinkError != null) throw sinkError;
+        DataOutputStream out = new DataOutputStream(sink);
+        writeIndex(out);
+        out.close();
+        sink = null;
+        Utils.publish(tmpOf(target), target);
+    }
+
+    public static DocStore load(Path file) throws IOException {
+        DocStore store = open(file);
+        try (FileChannel ch = store.source) {
+            if (store.compressedLength > Integer.MAX_VALUE - 8) {
+                throw new IOException("Doc store too large to load into memory: " + file);
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) store.compressedLength);
+            readFully(ch, buf, store.sourceStart);
+            store.compressed = buf.array();
+            store.source = null;
+        }
+        return store;
+    }
+
+    public static DocStore open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            readFully(ch, head, 0);
+            DocStore store;
+            if (head.getInt(0) == MAGIC_V3) {
+                if (ch.size() < 32) throw new IOException("Truncated doc store: " + file);
+                ByteBuffer tail = ByteBuffer.allocate(8);
+                readFully(ch, tail, ch.size() - 8);
+                ch.position(tail.getLong(0));
+                store = readIndex(new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch), 1 << 16)));
+                store.sourceStart = 4;
+            } else if (head.getInt(0) == MAGIC) {
+                ch.position(4);
+                store = readHeader(new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch), 1 << 16)));
+                store.sourceStart = 16L + 12L * store.blocks;
+            } else {
+                throw new IOException("Not a doc store: " + file);
+            }
+            if (ch.size() < store.sourceStart + store.compressedLength) {
+                throw new IOException("Truncated doc store: " + file);
+            }
+            store.source = ch;
+            return store;
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private void writeIndex(DataOutputStream out) throws IOException {
+        out.writeInt(docs);
+        out.writeInt(blocks);
+        for (int i = 0; i < blocks; i++) {
+            out.writeInt(blockFirstDoc[i]);
+            out.writeLong(blockOffset[i]);
+            out.writeInt(blockCrc[i]);
+        }
+        out.writeLong(compressedLength);
+        out.writeLong(4 + compressedLength);
+    }
+
+    private static DocStore readIndex(DataInputStream in) throws IOException {
+        DocStore store = new DocStore();
+        store.docs = in.readInt();
+        store.allocateBlocks(in.readInt());
+        for (int i = 0; i < store.blocks; i++) {
+            store.blockFirstDoc[i] = in.readInt();
+            store.blockOffset[i] = in.readLong();
+            store.blockCrc[i] = in.readInt();
+        }
+        store.compressedLength = in.readLong();
+        store.blockOffset[store.blocks] = store.compressedLength;
+        return store;
+    }
+
+    private static DocStore readHeader(DataInputStream in) throws IOException {
+        DocStore store = new DocStore();
+        store.docs = in.readInt();
+        store.allocateBlocks(in.readInt());
+        for (int i = 0; i < store.blocks; i++) {
+            store.blockFirstDoc[i] = in.readInt();
+            store.blockOffset[i] = in.readInt() & 0xFFFFFFFFL;
+            store.blockCrc[i] = in.readInt();
+        }
+        store.compressedLength = in.readInt() & 0xFFFFFFFFL;
+        store.blockOffset[store.blocks] = store.compressedLength;
+        return store;
+    }
+
+    private void allocateBlocks(int n) throws IOException {
+        if (n < 0) throw new IOException("Corrupt doc store header");
+        blocks = n;
+        blockFirstDoc = new int[Math.max(16, n)];
+        blockOffset = new long[Math.max(16, n) + 1];
+        blockCrc = new int[Math.max(16, n)];
+    }
+
+    private static Path tmpOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) throw new IOException("unexpected end of file");
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (source != null) source.close();
+        if (sink != null) {
+            sink.close();
+            sink = null;
+            Files.deleteIfExists(tmpOf(target));
+        }
+    }
+
+    private void sealBlock() {
+        if (pendingDocs == 0) return;
+        byte[] raw = pending.toByteArray();
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+        byte[] buf = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buf);
+            out.write(buf, 0, n);
+        }
+        deflater.end();
+        byte[] block = out.toByteArray();
+
+        if (sink != null) {
+            if (sinkError == null) {
+                try {
+                    sink.write(block);
+                } catch (IOException e) {
+                    sinkError = e;
+                }
+            }
+        } else {
+            ensureCompressedCapacity(compressedLength + block.length);
+            System.arraycopy(block, 0, compressed, (int) compressedLength, block.length);
+        }
+
+        if (blocks + 1 >= blockFirstDoc.length) {
+            blockFirstDoc = Arrays.copyOf(blockFirstDoc, blockFirstDoc.length * 2);
+            blockOffset = Arrays.copyOf(blockOffset, blockFirstDoc.length + 1);
+            blockCrc = Arrays.copyOf(blockCrc, blockFirstDoc.length);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(block, 0, block.length);
+        blockFirstDoc[blocks] = docs - pendingDocs;
+        blockOffset[blocks] = compressedLength;
+        blockCrc[blocks] = (int) crc.getValue();
+        blocks++;
+        compressedLength += block.length;
+        blockOffset[blocks] = compressedLength;
+
+        pending.reset();
+        pendingDocs = 0;
+    }
+
+    private Block decode(int b) {
+        long start = blockOffset[b];
+        int length = (int) ((b + 1 < blocks ? blockOffset[b + 1] : compressedLength) - start);
+        int count = (b + 1 < blocks ? blockFirstDoc[b + 1] : docs) - blockFirstDoc[b];
+
+        byte[] src = compressed;
+        int from = (int) start;
+        if (source != null) {
+            try {
+                ByteBuffer buf = ByteBuffer.allocate(length);
+                readFully(source, buf, sourceStart + start);
+                src = buf.array();
+                from = 0;
+            } catch (IOException e) {
+                Logger.error("Cannot read doc store block " + b + ": " + e.getMessage());
+                return null;
+            }
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(src, from, length);
+        if ((int) crc.getValue() != blockCrc[b]) {
+            Logger.error("Checksum mismatch in doc store block " + b + "; documents " + blockFirstDoc[b]
+                    + ".." + (blockFirstDoc[b] + count - 1) + " are unavailable");
+            return null;
+        }
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(src, from, length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BLOCK_BYTES + 4096);
+        byte[] buf = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                out.write(buf, 0, n);
+            }
+        } catch (DataFormatException e) {
+            Logger.error("Corrupt doc store block " + b + ": " + e.getMessage());
+            return null;
+        } finally {
+            inflater.end();
+        }
+        byte[] data = out.toByteArray();
+
+        int[] starts = new int[count];
+        int[] cursor = {0};
+        for (int i = 0; i < count; i++) {
+            starts[i] = cursor[0];
+            for (int f = 0; f < 3; f++) {
+                int len = readVarInt(data, cursor);
+                if (len > 0) cursor[0] += len - 1;
+            }
+        }
+        return new Block(data, starts);
+    }
+
+    private void ensureCompressedCapacity(long needed) {
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("in-memory doc store exceeds 2 GiB; write it with DocStore.create");
+        }
+        if (needed > compressed.length) {
+            int cap = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, compressed.length * 2L + 4096));
+            compressed = Arrays.copyOf(compressed, cap);
+        }
+    }
+
+    private void writeString(String s) {
+        if (s == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(b.length + 1);
+        pending.write(b, 0, b.length);
+    }
+
+    private void writeVarInt(int v) {
+        while ((v & ~0x7F) != 0) {
+            pending.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        pending.write(v);
+    }
+
+    private static String readString(byte[] data, int[] cursor) {
+        int len = readVarInt(data, cursor);
+        if (len == 0) return null;
+        String s = new String(data, cursor[0], len - 1, StandardCharsets.UTF_8);
+        cursor[0] += len - 1;
+        return s;
+    }
+
+    private static int readVarInt(byte[] data, int[] cursor) {
+        int v = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data[cursor[0]++];
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package indexer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class DocValues {
+    private final List<String> hosts = new ArrayList<>();
+    private final Map<String, Integer> hostIds = new HashMap<>();
+
+    private int[] hostRef = new int[16];
+    private byte[] pathDepth = new byte[16];
+    private long[] fetchTime = new long[16];
+    private int[] contentLength = new int[16];
+    private int size;
+
+    public void set(int doc, String host, int depth, long fetchMillis, int length) {
+        if (doc >= hostRef.length) {
+            int cap = Math.max(doc + 1, hostRef.length * 2);
+            hostRef = Arrays.copyOf(hostRef, cap);
+            pathDepth = Arrays.copyOf(pathDepth, cap);
+            fetchTime = Arrays.copyOf(fetchTime, cap);
+            contentLength = Arrays.copyOf(contentLength, cap);
+        }
+        hostRef[doc] = host == null ? 0 : internHost(host) + 1;
+        pathDepth[doc] = (byte) Math.max(0, Math.min(127, depth));
+        fetchTime[doc] = fetchMillis;
+        contentLength[doc] = Math.max(0, length);
+        size = Math.max(size, doc + 1);
+    }
+
+    public int internHost(String host) {
+        Integer id = hostIds.get(host);
+        if (id == null) {
+            id = hosts.size();
+            hosts.add(host);
+            hostIds.put(host, id);
+        }
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int hostCount() {
+        return hosts.size();
+    }
+
+    public String host(int hostId) {
+        return hosts.get(hostId);
+    }
+
+    public List<String> hosts() {
+        return Collections.unmodifiableList(hosts);
+    }
+
+    public int hostId(int doc) {
+        return doc < size ? hostRef[doc] - 1 : -1;
+    }
+
+    public int pathDepth(int doc) {
+        return doc < size ? pathDepth[doc] : 0;
+    }
+
+    public long fetchTime(int doc) {
+        return doc < size ? fetchTime[doc] : 0L;
+    }
+
+    public int contentLength(int doc) {
+        return doc < size ? contentLength[doc] : 0;
+    }
+
+    public static String hostOf(String url) {
+        if (url == null) return null;
+        int start = url.indexOf("://");
+        if (start < 0) return null;
+        start += 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == ':' || c == '?' || c == '#') break;
+            end++;
+        }
+        int at = url.lastIndexOf('@', end - 1);
+        if (at >= start) start = at + 1;
+        return end > start ? url.substring(start, end).toLowerCase(Locale.ROOT) : null;
+    }
+
+    public static String pathOf(String url) {
+        if (url == null) return "/";
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : url.indexOf('/', start + 3);
+        if (start < 0) return "/";
+        int end = start;
+        while (end < url.length() && url.charAt(end) != '?' && url.charAt(end) != '#') end++;
+        return url.substring(start, end);
+    }
+
+    public static int pathDepthOf(String url) {
+        String path = pathOf(url);
+        int depth = 0;
+        boolean inSegment = false;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                inSegment = false;
+            } else if (!inSegment) {
+                inSegment = true;
+                depth++;
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,264 @@
+package indexer;
+import java.util.HashMap;
+import java.util.Map;
+
+public class EnglishStemmer implements TokenFilter {
+
+    private static final Map<String, String> EXCEPTIONS = new HashMap<>();
+    static {
+        String[][] pairs = {
+            {"skis", "ski"}, {"skies", "sky"}, {"dying", "die"}, {"lying", "lie"}, {"tying", "tie"},
+            {"idly", "idl"}, {"gently", "gentl"}, {"ugly", "ugli"}, {"early", "earli"}, {"only", "onli"},
+            {"singly", "singl"}, {"sky", "sky"}, {"news", "news"}, {"howe", "howe"}, {"atlas", "atlas"},
+            {"cosmos", "cosmos"}, {"bias", "bias"}, {"andes", "andes"}
+        };
+        for (String[] p : pairs) EXCEPTIONS.put(p[0], p[1]);
+    }
+
+    @Override
+    public String apply(String token) {
+        if (token.length() <= 2) return token;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if ((c < 'a' || c > 'z') && c != '\'') return token;
+        }
+        return stem(token);
+    }
+
+    public String stem(String word) {
+        String ex = EXCEPTIONS.get(word);
+        if (ex != null) return ex;
+
+        StringBuilder sb = new StringBuilder(word);
+        if (sb.charAt(0) == '\'') sb.deleteCharAt(0);
+        if (sb.length() <= 2) return sb.toString();
+
+        if (sb.charAt(0) == 'y') sb.setCharAt(0, 'Y');
+        for (int i = 1; i < sb.length(); i++) {
+            if (sb.charAt(i) == 'y' && isVowel(sb.charAt(i - 1))) sb.setCharAt(i, 'Y');
+        }
+
+        int r1;
+        if (startsWith(sb, "gener") || startsWith(sb, "arsen")) {
+            r1 = 5;
+        } else if (startsWith(sb, "commun")) {
+            r1 = 6;
+        } else {
+            r1 = region(sb, 0);
+        }
+        int r2 = region(sb, r1);
+
+        step0(sb);
+        step1a(sb);
+        step1b(sb, r1);
+        step1c(sb);
+        step2(sb, r1);
+        step3(sb, r1, r2);
+        step4(sb, r2);
+        step5(sb, r1, r2);
+
+        for (int i = 0; i < sb.length(); i++) {
+            if (sb.charAt(i) == 'Y') sb.setCharAt(i, 'y');
+        }
+        return sb.toString();
+    }
+
+    private static void step0(StringBuilder sb) {
+        if (endsWith(sb, "'s'")) {
+            sb.setLength(sb.length() - 3);
+        } else if (endsWith(sb, "'s")) {
+            sb.setLength(sb.length() - 2);
+        } else if (endsWith(sb, "'")) {
+            sb.setLength(sb.length() - 1);
+        }
+    }
+
+    private static void step1a(StringBuilder sb) {
+        if (endsWith(sb, "sses")) {
+            sb.setLength(sb.length() - 2);
+        } else if (endsWith(sb, "ied") || endsWith(sb, "ies")) {
+            sb.setLength(sb.length() - (sb.length() > 4 ? 2 : 1));
+        } else if (endsWith(sb, "us") || endsWith(sb, "ss")) {
+            return;
+        } else if (endsWith(sb, "s")) {
+            for (int i = 0; i < sb.length() - 2; i++) {
+                if (isVowel(sb.charAt(i))) {
+                    sb.setLength(sb.length() - 1);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void step1b(StringBuilder sb, int r1) {
+        String suffix = longestSuffix(sb, "eedly", "ingly", "edly", "eed", "ing", "ed");
+        if (suffix == null) return;
+
+        if (suffix.equals("eedly") || suffix.equals("eed")) {
+            if (sb.length() - suffix.length() >= r1) {
+                sb.setLength(sb.length() - suffix.length() + 2);
+            }
+            return;
+        }
+
+        int stemLen = sb.length() - suffix.length();
+        boolean hasVowel = false;
+        for (int i = 0; i < stemLen; i++) {
+            if (isVowel(sb.charAt(i))) {
+                hasVowel = true;
+                break;
+            }
+        }
+        if (!hasVowel) return;
+
+        sb.setLength(stemLen);
+        if (endsWith(sb, "at") || endsWith(sb, "bl") || endsWith(sb, "iz")) {
+            sb.append('e');
+        } else if (endsWithDouble(sb)) {
+            sb.setLength(sb.length() - 1);
+        } else if (isShort(sb, r1)) {
+            sb.append('e');
+        }
+    }
+
+    private static void step1c(StringBuilder sb) {
+        int n = sb.length();
+        if (n > 2) {
+            char last = sb.charAt(n - 1);
+            if ((last == 'y' || last == 'Y') && !isVowel(sb.charAt(n - 2))) {
+                sb.setCharAt(n - 1, 'i');
+            }
+        }
+    }
+
+    private static final String[][] STEP2 = {
+        {"ization", "ize"}, {"ational", "ate"}, {"fulness", "ful"}, {"ousness", "ous"}, {"iveness", "ive"},
+        {"tional", "tion"}, {"biliti", "ble"}, {"lessli", "less"}, {"entli", "ent"}, {"ation", "ate"},
+        {"alism", "al"}, {"aliti", "al"}, {"ousli", "ous"}, {"iviti", "ive"}, {"fulli", "ful"},
+        {"enci", "ence"}, {"anci", "ance"}, {"abli", "able"}, {"izer", "ize"}, {"ator", "ate"},
+        {"alli", "al"}, {"bli", "ble"}, {"ogi", "og"}, {"li", ""}
+    };
+
+    private static void step2(StringBuilder sb, int r1) {
+        for (String[] rule : STEP2) {
+            if (!endsWith(sb, rule[0])) continue;
+            int stemLen = sb.length() - rule[0].length();
+            if (stemLen < r1) return;
+            if (rule[0].equals("ogi") && (stemLen == 0 || sb.charAt(stemLen - 1) != 'l')) return;
+            if (rule[0].equals("li") && (stemLen == 0 || "cdeghkmnrt".indexOf(sb.charAt(stemLen - 1)) < 0)) return;
+            sb.setLength(stemLen);
+            sb.append(rule[1]);
+            return;
+        }
+    }
+
+    private static final String[][] STEP3 = {
+        {"ational", "ate"}, {"tional", "tion"}, {"alize", "al"}, {"icate", "ic"}, {"iciti", "ic"},
+        {"ative", ""}, {"ical", "ic"}, {"ness", ""}, {"ful", ""}
+    };
+
+    private static void step3(StringBuilder sb, int r1, int r2) {
+        for (String[] rule : STEP3) {
+            if (!endsWith(sb, rule[0])) continue;
+            int stemLen = sb.length() - rule[0].length();
+            if (stemLen < r1) return;
+            if (rule[0].equals("ative") && stemLen < r2) return;
+            sb.setLength(stemLen);
+            sb.append(rule[1]);
+            return;
+        }
+    }
+
+    private static final String[] STEP4 = {
+        "ement", "ance", "ence", "able", "ible", "ment", "ant", "ent", "ism", "ate", "iti", "ous",
+        "ive", "ize", "ion", "al", "er", "ic"
+    };
+
+    private static void step4(StringBuilder sb, int r2) {
+        for (String suffix : STEP4) {
+            if (!endsWith(sb, suffix)) continue;
+            int stemLen = sb.length() - suffix.length();
+            if (stemLen < r2) return;
+            if (suffix.equals("ion")) {
+                char before = stemLen > 0 ? sb.charAt(stemLen - 1) : 0;
+                if (before != 's' && before != 't') return;
+            }
+            sb.setLength(stemLen);
+            return;
+        }
+    }
+
+    private static void step5(StringBuilder sb, int r1, int r2) {
+        int n = sb.length();
+        if (n == 0) return;
+        char last = sb.charAt(n - 1);
+        if (last == 'e') {
+            if (n - 1 >= r2) {
+                sb.setLength(n - 1);
+            } else if (n - 1 >= r1 && !endsWithShortSyllable(sb, n - 1)) {
+                sb.setLength(n - 1);
+            }
+        } else if (last == 'l' && n - 1 >= r2 && n >= 2 && sb.charAt(n - 2) == 'l') {
+            sb.setLength(n - 1);
+        }
+    }
+
+    private static boolean isShort(StringBuilder sb, int r1) {
+        return r1 >= sb.length() && endsWithShortSyllable(sb, sb.length());
+    }
+
+    private static boolean endsWithShortSyllable(StringBuilder sb, int end) {
+        if (end == 2) {
+            return isVowel(sb.charAt(0)) && !isVowel(sb.charAt(1));
+        }
+        if (end < 3) return false;
+        char c1 = sb.charAt(end - 3);
+        char c2 = sb.charAt(end - 2);
+        char c3 = sb.charAt(end - 1);
+        return !isVowel(c1) && isVowel(c2) && !isVowel(c3) && c3 != 'w' && c3 != 'x' && c3 != 'Y';
+    }
+
+    private static boolean endsWithDouble(StringBuilder sb) {
+        int n = sb.length();
+        if (n < 2) return false;
+        char c = sb.charAt(n - 1);
+        return c == sb.charAt(n - 2) && "bdfgmnprt".indexOf(c) >= 0;
+    }
+
+    private static int region(CharSequence s, int from) {
+        for (int i = from + 1; i < s.length(); i++) {
+            if (!isVowel(s.charAt(i)) && isVowel(s.charAt(i - 1))) {
+                return i + 1;
+            }
+        }
+        return s.length();
+    }
+
+    private static String longestSuffix(StringBuilder sb, String... suffixes) {
+        for (String s : suffixes) {
+            if (endsWith(sb, s)) return s;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(StringBuilder sb, String prefix) {
+        if (sb.length() < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (sb.charAt(i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean endsWith(StringBuilder sb, String suffix) {
+        int off = sb.length() - suffix.length();
+        if (off < 0) return false;
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sb.charAt(off + i) != suffix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u' || c == 'y';
+    }
+}
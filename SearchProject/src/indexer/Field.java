@@ -0,0 +1,40 @@
+package indexer;
+
+public enum Field {
+    TITLE('t', 3.0, 0.5),
+    HEADING('h', 2.0, 0.5),
+    BODY('b', 1.0, 0.75),
+    URL('u', 1.5, 0.3),
+    ANCHOR('a', 2.5, 0.3);
+
+    public static final Field[] ALL = values();
+
+    private final char code;
+    private final double defaultBoost;
+    private final double lengthNorm;
+
+    Field(char code, double defaultBoost, double lengthNorm) {
+        this.code = code;
+        this.defaultBoost = defaultBoost;
+        this.lengthNorm = lengthNorm;
+    }
+
+    public char code() {
+        return code;
+    }
+
+    public double defaultBoost() {
+        return defaultBoost;
+    }
+
+    public double lengthNorm() {
+        return lengthNorm;
+    }
+
+    public static Field fromCode(char c) {
+        for (Field f : ALL) {
+            if (f.code == c) return f;
+        }
+        return null;
+    }
+}
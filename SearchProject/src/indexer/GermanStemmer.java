@@ -0,0 +1,158 @@
+package indexer;
+
+public class GermanStemmer implements TokenFilter {
+
+    @Override
+    public String apply(String token) {
+        if (token.length() < 3) return token;
+        return stem(token);
+    }
+
+    public String stem(String word) {
+        StringBuilder sb = new StringBuilder(word.length() + 2);
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '\u00df') {
+                sb.append("ss");
+            } else {
+                sb.append(c);
+            }
+        }
+
+        for (int i = 1; i < sb.length() - 1; i++) {
+            char c = sb.charAt(i);
+            if ((c == 'u' || c == 'y') && isVowel(sb.charAt(i - 1)) && isVowel(sb.charAt(i + 1))) {
+                sb.setCharAt(i, Character.toUpperCase(c));
+            }
+        }
+
+        int r1 = region(sb, 0);
+        int r2 = region(sb, r1);
+        if (r1 < 3) r1 = 3;
+
+        step1(sb, r1);
+        step2(sb, r1);
+        step3(sb, r1, r2);
+
+        for (int i = 0; i < sb.length(); i++) {
+            switch (sb.charAt(i)) {
+                case 'U': sb.setCharAt(i, 'u'); break;
+                case 'Y': sb.setCharAt(i, 'y'); break;
+                case '\u00e4': sb.setCharAt(i, 'a'); break;
+                case '\u00f6': sb.setCharAt(i, 'o'); break;
+                case '\u00fc': sb.setCharAt(i, 'u'); break;
+                default: break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void step1(StringBuilder sb, int r1) {
+        String suffix = longestSuffix(sb, "ern", "em", "er", "en", "es", "e", "s");
+        if (suffix == null || sb.length() - suffix.length() < r1) return;
+
+        if (suffix.equals("s")) {
+            if (sb.length() >= 2 && isSEnding(sb.charAt(sb.length() - 2))) {
+                sb.setLength(sb.length() - 1);
+            }
+            return;
+        }
+
+        sb.setLength(sb.length() - suffix.length());
+        if ((suffix.equals("e") || suffix.equals("en") || suffix.equals("es")) && endsWith(sb, "niss")) {
+            sb.setLength(sb.length() - 1);
+        }
+    }
+
+    private static void step2(StringBuilder sb, int r1) {
+        String suffix = longestSuffix(sb, "est", "en", "er", "st");
+        if (suffix == null || sb.length() - suffix.length() < r1) return;
+
+        if (suffix.equals("st")) {
+            if (sb.length() >= 6 && isStEnding(sb.charAt(sb.length() - 3))) {
+                sb.setLength(sb.length() - 2);
+            }
+            return;
+        }
+        sb.setLength(sb.length() - suffix.length());
+    }
+
+    private static void step3(StringBuilder sb, int r1, int r2) {
+        if (endsWith(sb, "end") || endsWith(sb, "ung")) {
+            if (sb.length() - 3 >= r2) {
+                sb.setLength(sb.length() - 3);
+                if (endsWith(sb, "ig") && sb.length() - 2 >= r2 && !precededBy(sb, 2, 'e')) {
+                    sb.setLength(sb.length() - 2);
+                }
+            }
+        } else if (endsWith(sb, "isch")) {
+            if (sb.length() - 4 >= r2 && !precededBy(sb, 4, 'e')) sb.setLength(sb.length() - 4);
+        } else if (endsWith(sb, "ig") || endsWith(sb, "ik")) {
+            if (sb.length() - 2 >= r2 && !precededBy(sb, 2, 'e')) sb.setLength(sb.length() - 2);
+        } else if (endsWith(sb, "lich") || endsWith(sb, "heit")) {
+            if (sb.length() - 4 >= r2) {
+                sb.setLength(sb.length() - 4);
+                if ((endsWith(sb, "er") || endsWith(sb, "en")) && sb.length() - 2 >= r1) {
+                    sb.setLength(sb.length() - 2);
+                }
+            }
+        } else if (endsWith(sb, "keit")) {
+            if (sb.length() - 4 >= r2) {
+                sb.setLength(sb.length() - 4);
+                if (endsWith(sb, "lich") && sb.length() - 4 >= r2) {
+                    sb.setLength(sb.length() - 4);
+                } else if (endsWith(sb, "ig") && sb.length() - 2 >= r2) {
+                    sb.setLength(sb.length() - 2);
+                }
+            }
+        }
+    }
+
+    private static int region(CharSequence s, int from) {
+        for (int i = from + 1; i < s.length(); i++) {
+            if (!isVowel(s.charAt(i)) && isVowel(s.charAt(i - 1))) {
+                return i + 1;
+            }
+        }
+        return s.length();
+    }
+
+    private static String longestSuffix(StringBuilder sb, String... suffixes) {
+        for (String s : suffixes) {
+            if (endsWith(sb, s)) return s;
+        }
+        return null;
+    }
+
+    private static boolean precededBy(StringBuilder sb, int suffixLen, char c) {
+        int i = sb.length() - suffixLen - 1;
+        return i >= 0 && sb.charAt(i) == c;
+    }
+
+    private static boolean endsWith(StringBuilder sb, String suffix) {
+        int off = sb.length() - suffix.length();
+        if (off < 0) return false;
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sb.charAt(off + i) != suffix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isVowel(char c) {
+        switch (c) {
+            case 'a': case 'e': case 'i': case 'o': case 'u': case 'y':
+            case '\u00e4': case '\u00f6': case '\u00fc':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isSEnding(char c) {
+        return "bdfghklmnrt".indexOf(c) >= 0;
+    }
+
+    private static boolean isStEnding(char c) {
+        return "bdfghklmnt".indexOf(c) >= 0;
+    }
+}
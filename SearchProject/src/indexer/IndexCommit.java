@@ -0,0 +1,201 @@
+package indexer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import util.Logger;
+import util.Utils;
+
+public final class IndexCommit {
+    private static final String PREFIX = "commit_";
+    private static final int KEEP_COMMITS = 2;
+
+    private static final class Entry {
+        final String file;
+        final long length;
+        final long crc;
+
+        Entry(String file, long length, long crc) {
+            this.file = file;
+            this.length = length;
+            this.crc = crc;
+        }
+    }
+
+    private final Path dir;
+    private final long generation;
+    private final Map<String, Entry> files;
+
+    private IndexCommit(Path dir, long generation, Map<String, Entry> files) {
+        this.dir = dir;
+        this.generation = generation;
+        this.files = files;
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    public Path file(String name) {
+        Entry e = files.get(name);
+        return e == null ? null : dir.resolve(e.file);
+    }
+
+    public static Path file(Path dir, String name, long generation) {
+        int dot = name.lastIndexOf('.');
+        String versioned = dot < 0
+                ? name + "_" + generation
+                : name.substring(0, dot) + "_" + generation + name.substring(dot);
+        return dir.resolve(versioned);
+    }
+
+    public static long nextGeneration(Path dir) {
+        List<Long> gens = generations(dir);
+        return gens.isEmpty() ? 1 : gens.get(0) + 1;
+    }
+
+    public static boolean exists(Path dir) {
+        return !generations(dir).isEmpty();
+    }
+
+    public static IndexCommit write(Path dir, long generation, Map<String, Path> namedFiles) throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        StringBuilder sb = new StringBuilder();
+        sb.append("generation ").append(generation).append('\n');
+        for (Map.Entry<String, Path> e : namedFiles.entrySet()) {
+            Path f = e.getValue();
+            Utils.sync(f);
+            Entry entry = new Entry(f.getFileName().toString(), Files.size(f), Utils.crc32c(f));
+            entries.put(e.getKey(), entry);
+            sb.append("file ").append(e.getKey()).append(' ').append(entry.file).append(' ')
+              .append(entry.length).append(' ').append(Long.toHexString(entry.crc)).append('\n');
+        }
+        long crc = Utils.crc32c(sb.toString().getBytes(StandardCharsets.UTF_8));
+        sb.append("checksum ").append(Long.toHexString(crc)).append('\n');
+
+        Utils.writeAtomic(dir.resolve(PREFIX + generation), w -> {
+            try {
+                w.write(sb.toString());
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        removeOldCommits(dir, generation);
+        return new IndexCommit(dir, generation, entries);
+    }
+
+    public static IndexCommit openLatest(Path dir) throws IOException {
+        return openLatest(dir, true);
+    }
+
+    public static IndexCommit openLatest(Path dir, boolean verifyContents) throws IOException {
+        List<Long> gens = generations(dir);
+        for (int i = 0; i < gens.size(); i++) {
+            long gen = gens.get(i);
+            try {
+                IndexCommit c = read(dir, gen);
+                c.verify(verifyContents);
+                if (i > 0) Logger.warn("Opened commit " + gen + " of " + dir + " (newer commits are damaged)");
+                return c;
+            } catch (IOException e) {
+                Logger.error("Commit " + gen + " of " + dir + " is unusable: " + e.getMessage());
+            }
+        }
+        throw new IOException("no valid commit in " + dir);
+    }
+
+    private void verify(boolean contents) throws IOException {
+        for (Map.Entry<String, Entry> e : files.entrySet()) {
+            Entry entry = e.getValue();
+            Path f = dir.resolve(entry.file);
+            if (!Files.isRegularFile(f)) throw new IOException(entry.file + " is missing");
+            long size = Files.size(f);
+            if (size != entry.length) {
+                throw new IOException(entry.file + " has " + size + " bytes, expected " + entry.length);
+            }
+            if (contents && Utils.crc32c(f) != entry.crc) throw new IOException(entry.file + " fails its checksum");
+        }
+    }
+
+    private static IndexCommit read(Path dir, long generation) throws IOException {
+        List<String> lines = Files.readAllLines(dir.resolve(PREFIX + generation), StandardCharsets.UTF_8);
+        StringBuilder body = new StringBuilder();
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        boolean sealed = false;
+        for (String line : lines) {
+            String[] p = line.split(" ");
+            try {
+                if (p[0].equals("checksum") && p.length == 2) {
+                    long crc = Utils.crc32c(body.toString().getBytes(StandardCharsets.UTF_8));
+                    if (crc != Long.parseLong(p[1], 16)) throw new IOException("commit file fails its checksum");
+                    sealed = true;
+                    break;
+                }
+                if (p[0].equals("file") && p.length == 5) {
+                    entries.put(p[1], new Entry(p[2], Long.parseLong(p[3]), Long.parseLong(p[4], 16)));
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("malformed line: " + line);
+            }
+            body.append(line).append('\n');
+        }
+        if (!sealed) throw new IOException("commit file is incomplete");
+        return new IndexCommit(dir, generation, entries);
+    }
+
+    private static void removeOldCommits(Path dir, long latest) {
+        Set<String> keep = new HashSet<>();
+        List<Long> drop = new ArrayList<>();
+        for (long gen : generations(dir)) {
+            if (gen > latest - KEEP_COMMITS) {
+                try {
+                    for (Entry e : read(dir, gen).files.values()) keep.add(e.file);
+                } catch (IOException ignore) {
+                }
+            } else {
+                drop.add(gen);
+            }
+        }
+        for (long gen : drop) {
+            try {
+                for (Entry e : read(dir, gen).files.values()) {
+                    if (!keep.contains(e.file)) Files.deleteIfExists(dir.resolve(e.file));
+                }
+            } catch (IOException e) {
+                Logger.warn("Cannot clean up files of commit " + gen + " in " + dir + ": " + e.getMessage());
+            }
+            try {
+                Files.deleteIfExists(dir.resolve(PREFIX + gen));
+            } catch (IOException e) {
+                Logger.warn("Cannot remove commit " + gen + " in " + dir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static List<Long> generations(Path dir) {
+        List<Long> gens = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return gens;
+        try (Stream<Path> s = Files.list(dir)) {
+            s.map(p -> p.getFileName().toString())
+             .filter(n -> n.startsWith(PREFIX) && n.length() > PREFIX.length())
+             .forEach(n -> {
+                 try {
+                     gens.add(Long.parseLong(n.substring(PREFIX.length())));
+                 } catch (NumberFormatException ignore) {
+                 }
+             });
+        } catch (IOException e) {
+            Logger.warn("Cannot list " + dir + ": " + e.getMessage());
+        }
+        gens.sort(Collections.reverseOrder());
+        return gens;
+    }
+}
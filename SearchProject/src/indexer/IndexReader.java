@@ -0,0 +1,26 @@
+package indexer;
+import java.util.Set;
+
+public interface IndexReader {
+    int totalDocs();
+
+    String docName(int docId);
+
+    String docUrl(int docId);
+
+    byte normByte(int docId, Field field);
+
+    double averageFieldLength(Field field);
+
+    float staticScore(int docId);
+
+    DocValues docValues();
+
+    PostingList getPostings(String term);
+
+    int docFreq(String term);
+
+    String displayWord(String term);
+
+    Set<String> terms();
+}
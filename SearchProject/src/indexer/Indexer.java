@@ -1,59 +1,130 @@
 package indexer;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import util.Logger;
 import util.Utils;
 
 public class Indexer {
+    private static final int MAX_STORED_CHARS = 32 * 1024;
+
     private final InvertedIndex index = new InvertedIndex();
+    private final DocStore docStore = new DocStore();
+    private final TextParser parser = new TextParser();
+    private final Analyzer analyzer;
+    private final String language;
+
+    public Indexer() {
+        this(Analyzers.defaultLanguage());
+    }
+
+    public Indexer(String language) {
+        this.language = Analyzers.language(language);
+        this.analyzer = Analyzers.forLanguage(this.language);
+    }
+
+    public Indexer(Analyzer analyzer) {
+        this.analyzer = analyzer;
+        this.language = null;
+    }
 
     public void addPage(String pageName, String htmlContent) {
+        addPage(pageName, null, htmlContent, null);
+    }
+
+    public void addPage(String pageName, String url, String htmlContent, String anchorText) {
+        addPage(pageName, url, htmlContent, anchorText, 0L, htmlContent == null ? 0 : htmlContent.length());
+    }
+
+    public void addPage(String pageName, String url, String htmlContent, String anchorText,
+                        long fetchTime, int contentLength) {
         if (htmlContent == null) return;
-        TextParser parser = new TextParser();
-        for (String word : parser.parse(htmlContent)) {
-            index.add(pageName, word);
+        int doc = index.addDocument(pageName, url);
+        index.docValues().set(doc, DocValues.hostOf(url), DocValues.pathDepthOf(url), fetchTime, contentLength);
+
+        String title = parser.extractTitle(htmlContent);
+        String body = parser.extractBody(htmlContent);
+        addField(doc, Field.TITLE, title);
+        addField(doc, Field.HEADING, parser.extractHeadings(htmlContent));
+        addField(doc, Field.BODY, body);
+        addField(doc, Field.URL, urlText(url));
+        addField(doc, Field.ANCHOR, anchorText);
+
+        docStore.put(doc, collapse(title, 512), url, collapse(body, MAX_STORED_CHARS));
+    }
+
+    private static String collapse(String text, int maxChars) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(Math.min(text.length(), maxChars));
+        boolean space = false;
+        for (int i = 0; i < text.length() && sb.length() < maxChars; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = sb.length() > 0;
+            } else {
+                if (space) sb.append(' ');
+                sb.append(c);
+                space = false;
+            }
         }
+        return sb.toString();
+    }
+
+    private void addField(int doc, Field field, String text) {
+        if (text == null || text.isEmpty()) return;
+        int[] length = new int[1];
+        analyzer.analyze(text, (word, term) -> {
+            index.add(doc, field, term);
+            if (field != Field.URL) index.addWord(term, word);
+            length[0]++;
+        });
+        index.setFieldLength(doc, field, length[0]);
+    }
+
+    private static String urlText(String url) {
+        if (url == null) return null;
+        String s = url.replaceFirst("(?i)^https?://(www\\.)?", "");
+        s = s.replaceFirst("(?i)\\.(html?|php|aspx?)$", "");
+        return s.replaceAll("[^\\p{L}\\p{N}]+", " ");
     }
 
     public void save(String filePath) {
         Path finalPath = Paths.get(filePath);
         try {
-            Utils.ensureParentDirs(finalPath);
-
-            if (Files.exists(finalPath)) {
-                String date = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-                Path backup = finalPath.getParent().resolve("index_backup_" + date + ".txt");
-                Files.copy(finalPath, backup, StandardCopyOption.REPLACE_EXISTING);
-            }
-
             Utils.writeAtomic(finalPath, (BufferedWriter w) -> {
                 try {
-                    for (String term : index.terms()) {
+                    for (String term : sortedTerms()) {
                         PostingList pl = index.getPostings(term);
                         if (pl.isEmpty()) continue;
 
                         w.write(term);
                         w.write(':');
 
-                        boolean first = true;
-                        for (Map.Entry<String, Integer> e : pl.entries()) {
-                            if (!first) {
+                        for (int i = 0; i < pl.df(); i++) {
+                            if (i > 0) {
                                 w.write(',');
                             }
-                            w.write(e.getKey());
+                            w.write(index.docName(pl.doc(i)));
                             w.write('(');
-                            w.write(String.valueOf(e.getValue()));
+                            boolean first = true;
+                            for (Field f : Field.ALL) {
+                                int tf = pl.freq(i, f);
+                                if (tf == 0) continue;
+                                if (!first) w.write(' ');
+                                w.write(f.code());
+                                w.write(String.valueOf(tf));
+                                first = false;
+                            }
                             w.write(')');
-                            first = false;
                         }
                         w.write('\n');
                     }
                 } catch (IOException io) {
-                    Logger.error("IOException while writing index to " + finalPath + ": " + io.getMessage(), io);
+                    throw new UncheckedIOException(io);
                 }
             });
 
@@ -62,7 +133,43 @@ public class Indexer {
         }
     }
 
+    public void saveSegment(Path file) throws IOException {
+        DocValues dv = index.docValues();
+        try (SegmentWriter w = new SegmentWriter(file, System.currentTimeMillis(), index.totalDocs(), dv.hosts(),
+                language)) {
+            byte[] norms = new byte[Field.ALL.length];
+            for (int d = 0; d < index.totalDocs(); d++) {
+                for (Field f : Field.ALL) norms[f.ordinal()] = index.normByte(d, f);
+                w.addDoc(index.docName(d), index.docUrl(d), norms, index.staticScore(d),
+                        dv.hostId(d), dv.pathDepth(d), dv.fetchTime(d), dv.contentLength(d));
+            }
+            for (String term : sortedTerms()) {
+                PostingList pl = index.getPostings(term);
+                if (!pl.isEmpty()) w.addTerm(term, index.displayWord(term), pl);
+            }
+            w.commit();
+        }
+    }
+
+    private List<String> sortedTerms() {
+        List<String> terms = new ArrayList<>(index.terms());
+        Collections.sort(terms);
+        return terms;
+    }
+
     public InvertedIndex getIndex() {
         return index;
     }
+
+    public DocStore getDocStore() {
+        return docStore;
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
 }
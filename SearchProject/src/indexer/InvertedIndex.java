@@ -1,28 +1,164 @@
 package indexer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class InvertedIndex {
+public class InvertedIndex implements IndexReader {
+    private static final int[] DECODED_LENGTHS = new int[256];
+
+    static {
+        for (int code = 0; code < 256; code++) {
+            DECODED_LENGTHS[code] = code < 32 ? code : (int) Math.round(32.0 * Math.pow(2.0, (code - 32) / 16.0));
+        }
+    }
+
     private final Map<String, PostingList> postingsByTerm = new LinkedHashMap<>();
-    private final Set<String> documents = new LinkedHashSet<>();
+    private final Map<String, String> words = new HashMap<>();
+    private final List<String> docNames = new ArrayList<>();
+    private final List<String> docUrls = new ArrayList<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private int docIdsBuilt = -1;
+
+    private final byte[][] norms = new byte[Field.ALL.length][16];
+    private final long[] totalFieldLength = new long[Field.ALL.length];
+    private float[] staticScores = new float[0];
+    private DocValues docValues = new DocValues();
+
+    public int addDocument(String doc, String url) {
+        Integer id = docIds().get(doc);
+        if (id != null) {
+            if (url != null) docUrls.set(id, url);
+            return id;
+        }
+        int newId = docNames.size();
+        docNames.add(doc);
+        docUrls.add(url);
+        docIds.put(doc, newId);
+        return newId;
+    }
 
     public void add(String doc, String term) {
-        documents.add(doc);
+        add(addDocument(doc, null), Field.BODY, term);
+    }
+
+    public void add(int docId, Field field, String term) {
         PostingList pl = postingsByTerm.get(term);
         if (pl == null) {
             pl = new PostingList();
             postingsByTerm.put(term, pl);
         }
-        pl.increment(doc);
+        pl.increment(docId, field);
+    }
+
+    public void setFieldLength(int docId, Field field, int length) {
+        byte[] col = norms[field.ordinal()];
+        if (docId >= col.length) {
+            col = Arrays.copyOf(col, Math.max(docId + 1, col.length * 2));
+            norms[field.ordinal()] = col;
+        }
+        totalFieldLength[field.ordinal()] += decodeLength(encodeLength(length)) - decodeLength(col[docId]);
+        col[docId] = encodeLength(length);
+    }
+
+    void setNormByte(int docId, Field field, byte norm) {
+        setFieldLength(docId, field, 0);
+        norms[field.ordinal()][docId] = norm;
+        totalFieldLength[field.ordinal()] += decodeLength(norm);
+    }
+
+    void loadDocs(String[] names, String[] urls, byte[][] normColumns, float[] scores, DocValues values) {
+        if (!docNames.isEmpty()) throw new IllegalStateException("index already has documents");
+        docNames.addAll(Arrays.asList(names));
+        docUrls.addAll(Arrays.asList(urls));
+        docIdsBuilt = 0;
+        for (int f = 0; f < Field.ALL.length; f++) {
+            byte[] col = f < normColumns.length ? normColumns[f] : new byte[names.length];
+            long total = 0;
+            for (byte b : col) total += decodeLength(b);
+            norms[f] = col;
+            totalFieldLength[f] = total;
+        }
+        staticScores = scores;
+        docValues = values;
+    }
+
+    private synchronized Map<String, Integer> docIds() {
+        if (docIdsBuilt >= 0) {
+            for (int d = docIdsBuilt; d < docNames.size(); d++) docIds.putIfAbsent(docNames.get(d), d);
+            docIdsBuilt = -1;
+        }
+        return docIds;
+    }
+
+    void addWord(String term, String word) {
+        if (word == null || word.isEmpty()) return;
+        String known = words.putIfAbsent(term, word);
+        if (known != null && !known.equals(term) && word.equals(term)) words.put(term, word);
+    }
+
+    PostingList postingsFor(String term) {
+        return postingsByTerm.computeIfAbsent(term, t -> new PostingList());
+    }
+
+    public int fieldLength(int docId, Field field) {
+        return decodeLength(normByte(docId, field));
     }
 
+    @Override
+    public byte normByte(int docId, Field field) {
+        byte[] col = norms[field.ordinal()];
+        return docId < col.length ? col[docId] : 0;
+    }
+
+    @Override
+    public double averageFieldLength(Field field) {
+        int n = docNames.size();
+        return n == 0 ? 0.0 : (double) totalFieldLength[field.ordinal()] / n;
+    }
+
+    public void setStaticScore(int docId, float score) {
+        if (docId >= staticScores.length) {
+            staticScores = Arrays.copyOf(staticScores, Math.max(docId + 1, docNames.size()));
+        }
+        staticScores[docId] = score;
+    }
+
+    @Override
+    public float staticScore(int docId) {
+        return docId < staticScores.length ? staticScores[docId] : 0f;
+    }
+
+    @Override
+    public DocValues docValues() {
+        return docValues;
+    }
+
+    @Override
     public int totalDocs() {
-        return documents.size();
+        return docNames.size();
+    }
+
+    @Override
+    public String docName(int docId) {
+        return docNames.get(docId);
     }
 
+    @Override
+    public String docUrl(int docId) {
+        return docUrls.get(docId);
+    }
+
+    public int docId(String doc) {
+        Integer id = docIds().get(doc);
+        return id == null ? -1 : id;
+    }
+
+    @Override
     public PostingList getPostings(String term) {
         PostingList pl = postingsByTerm.get(term);
         if (pl == null) {
@@ -31,6 +167,18 @@ public class InvertedIndex {
         return pl;
     }
 
+    @Override
+    public int docFreq(String term) {
+        PostingList pl = postingsByTerm.get(term);
+        return pl == null ? 0 : pl.df();
+    }
+
+    @Override
+    public String displayWord(String term) {
+        return words.getOrDefault(term, term);
+    }
+
+    @Override
     public Set<String> terms() {
         return Collections.unmodifiableSet(postingsByTerm.keySet());
     }
@@ -38,4 +186,15 @@ public class InvertedIndex {
     public Map<String, PostingList> asMapView() {
         return Collections.unmodifiableMap(postingsByTerm);
     }
+
+    public static byte encodeLength(int length) {
+        if (length <= 0) return 0;
+        if (length < 32) return (byte) length;
+        int code = 32 + (int) Math.round(16.0 * (Math.log(length / 32.0) / Math.log(2)));
+        return (byte) Math.min(255, code);
+    }
+
+    public static int decodeLength(byte b) {
+        return DECODED_LENGTHS[b & 0xFF];
+    }
 }
@@ -1,25 +1,98 @@
 package indexer;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 
 public class PostingList {
-    private final Map<String, Integer> freqByDoc = new LinkedHashMap<>();
+    static final int FIELD_BITS = 12;
+    static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
 
-    public void increment(String doc) {
-        freqByDoc.merge(doc, 1, Integer::sum);
+    private int[] docs = new int[4];
+    private long[] freqs = new long[4];
+    private int size;
+
+    public PostingList() {
+    }
+
+    PostingList(int capacity) {
+        docs = new int[Math.max(4, capacity)];
+        freqs = new long[docs.length];
+    }
+
+    public void increment(int doc) {
+        increment(doc, Field.BODY);
+    }
+
+    public void increment(int doc, Field field) {
+        int i;
+        if (size > 0 && docs[size - 1] == doc) {
+            i = size - 1;
+        } else if (size == 0 || docs[size - 1] < doc) {
+            i = insertAt(size, doc);
+        } else {
+            i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i < 0) i = insertAt(-i - 1, doc);
+        }
+
+        int shift = field.ordinal() * FIELD_BITS;
+        if (((freqs[i] >>> shift) & FIELD_MASK) < FIELD_MASK) {
+            freqs[i] += 1L << shift;
+        }
+    }
+
+    void append(int doc, long packed) {
+        if (size > 0 && docs[size - 1] >= doc) throw new IllegalArgumentException("postings out of order at doc " + doc);
+        int i = insertAt(size, doc);
+        freqs[i] = packed;
+    }
+
+    private int insertAt(int pos, int doc) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            freqs = Arrays.copyOf(freqs, size * 2);
+        }
+        if (pos < size) {
+            System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+            System.arraycopy(freqs, pos, freqs, pos + 1, size - pos);
+        }
+        docs[pos] = doc;
+        freqs[pos] = 0L;
+        size++;
+        return pos;
     }
 
     public int df() {
-        return freqByDoc.size();
+        return size;
     }
 
     public boolean isEmpty() {
-        return freqByDoc.isEmpty();
+        return size == 0;
+    }
+
+    public int seek(int doc) {
+        if (size == 0 || docs[0] >= doc) return 0;
+        int i = Arrays.binarySearch(docs, 0, size, doc);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    public int doc(int i) {
+        return docs[i];
+    }
+
+    public long packedFreqs(int i) {
+        return freqs[i];
+    }
+
+    public int freq(int i, Field field) {
+        return unpack(freqs[i], field);
+    }
+
+    public int totalFreq(int i) {
+        long packed = freqs[i];
+        int total = 0;
+        for (Field f : Field.ALL) total += unpack(packed, f);
+        return total;
     }
 
-    public Set<Map.Entry<String, Integer>> entries() {
-        return Collections.unmodifiableSet(freqByDoc.entrySet());
+    public static int unpack(long packed, Field field) {
+        return (int) ((packed >>> (field.ordinal() * FIELD_BITS)) & FIELD_MASK);
     }
 }
@@ -0,0 +1,282 @@
+package indexer;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import util.ChecksumBlockFile;
+import util.Logger;
+import util.Utils;
+
+public final class SegmentIndex implements IndexReader, Closeable {
+    private static final int CACHE_BLOCKS = Integer.getInteger("search.cacheBlocks", 256);
+    private static final long CACHE_POSTINGS = Long.getLong("search.cachePostings", 1L << 21);
+
+    private final InvertedIndex docs = new InvertedIndex();
+    private final ChecksumBlockFile file;
+    private final int blockSize;
+    private final String language;
+    private String[] terms = new String[0];
+    private String[] words = new String[0];
+    private int[] dfs = new int[0];
+    private long[] offsets = new long[0];
+
+    private final Map<Integer, byte[]> blocks = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            return size() > CACHE_BLOCKS;
+        }
+    };
+    private final LinkedHashMap<String, PostingList> decoded = new LinkedHashMap<>(64, 0.75f, true);
+    private long decodedPostings;
+    private long blocksRead;
+
+    private SegmentIndex(ChecksumBlockFile file, String language) {
+        this.file = file;
+        this.blockSize = file.blockSize();
+        this.language = language;
+    }
+
+    public static IndexReader open(Path path) throws IOException {
+        try (SegmentReader r = SegmentReader.open(path)) {
+            if (r.version() < 4) {
+                Logger.warn(path + " has no term dictionary (segment version " + r.version()
+                        + "); loading it fully. Rewrite it with IndexMerge to open it lazily.");
+                return SegmentReader.load(path);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(SegmentWriter.TRAILER_BYTES);
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                long start = ch.size() - SegmentWriter.TRAILER_BYTES;
+                while (trailer.hasRemaining()) {
+                    if (ch.read(trailer, start + trailer.position()) < 0) throw new IOException(path + ": truncated");
+                }
+            }
+            byte[] head = Arrays.copyOf(trailer.array(), SegmentWriter.TRAILER_BYTES - 4);
+            if ((int) Utils.crc32c(head) != trailer.getInt(SegmentWriter.TRAILER_BYTES - 4)) {
+                throw new IOException(path + ": segment trailer fails its checksum");
+            }
+            long dictionary = trailer.getLong(0);
+            int blockSize = trailer.getInt(8);
+
+            SegmentIndex index = new SegmentIndex(new ChecksumBlockFile(path, 8, blockSize), r.language());
+            try {
+                r.copyDocs(index.docs);
+                index.readDictionary(dictionary, r.version());
+            } catch (IOException | RuntimeException e) {
+                index.close();
+                throw e;
+            }
+            return index;
+        }
+    }
+
+    private void readDictionary(long offset, int version) throws IOException {
+        DataInputStream in = new DataInputStream(new BlockInput(offset, false));
+        int n = in.readInt();
+        terms = new String[n];
+        words = new String[n];
+        dfs = new int[n];
+        offsets = new long[n];
+        long prev = 0;
+        for (int t = 0; t < n; t++) {
+            terms[t] = in.readUTF();
+            if (version >= 5) {
+                String word = in.readUTF();
+                if (!word.isEmpty()) words[t] = word;
+            }
+            dfs[t] = (int) readVarLong(in);
+            prev += readVarLong(in);
+            offsets[t] = prev;
+        }
+    }
+
+    @Override
+    public int totalDocs() {
+        return docs.totalDocs();
+    }
+
+    @Override
+    public String docName(int docId) {
+        return docs.docName(docId);
+    }
+
+    @Override
+    public String docUrl(int docId) {
+        return docs.docUrl(docId);
+    }
+
+    @Override
+    public byte normByte(int docId, Field field) {
+        return docs.normByte(docId, field);
+    }
+
+    @Override
+    public double averageFieldLength(Field field) {
+        return docs.averageFieldLength(field);
+    }
+
+    @Override
+    public float staticScore(int docId) {
+        return docs.staticScore(docId);
+    }
+
+    @Override
+    public DocValues docValues() {
+        return docs.docValues();
+    }
+
+    @Override
+    public PostingList getPostings(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        if (t < 0) return new PostingList();
+        synchronized (this) {
+            PostingList pl = decoded.get(term);
+            if (pl != null) return pl;
+            try {
+                pl = decode(t);
+            } catch (IOException e) {
+                Logger.error("Cannot read postings of '" + term + "': " + e.getMessage());
+                return new PostingList();
+            }
+            if (pl.df() <= CACHE_POSTINGS / 4) {
+                decoded.put(term, pl);
+                decodedPostings += pl.df();
+                Iterator<PostingList> it = decoded.values().iterator();
+                while (decodedPostings > CACHE_POSTINGS && it.hasNext()) {
+                    decodedPostings -= it.next().df();
+                    it.remove();
+                }
+            }
+            return pl;
+        }
+    }
+
+    @Override
+    public int docFreq(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? 0 : dfs[t];
+    }
+
+    @Override
+    public String displayWord(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 || words[t] == null ? term : words[t];
+    }
+
+    @Override
+    public Set<String> terms() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return Collections.unmodifiableList(Arrays.asList(terms)).iterator();
+            }
+
+            @Override
+            public int size() {
+                return terms.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && Arrays.binarySearch(terms, (String) o) >= 0;
+            }
+        };
+    }
+
+    public String language() {
+        return language;
+    }
+
+    public synchronized long blocksRead() {
+        return blocksRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private PostingList decode(int t) throws IOException {
+        int df = dfs[t];
+        PostingList pl = new PostingList(df);
+        InputStream in = new BlockInput(offsets[t], true);
+        int doc = -1;
+        for (int i = 0; i < df; i++) {
+            doc += (int) readVarLong(in);
+            pl.append(doc, readVarLong(in));
+        }
+        return pl;
+    }
+
+    private byte[] block(int k, boolean cache) throws IOException {
+        byte[] b = cache ? blocks.get(k) : null;
+        if (b == null) {
+            b = file.block(k);
+            blocksRead++;
+            if (cache) blocks.put(k, b);
+        }
+        return b;
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.read();
+            if (b < 0) throw new IOException("unexpected end of segment");
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+        }
+    }
+
+    private final class BlockInput extends InputStream {
+        private final boolean cache;
+        private int k;
+        private int pos;
+        private byte[] data;
+
+        BlockInput(long offset, boolean cache) {
+            this.cache = cache;
+            this.k = (int) (offset / blockSize);
+            this.pos = (int) (offset % blockSize);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) return -1;
+            return data[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int n = Math.min(len, data.length - pos);
+            System.arraycopy(data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            if (data == null) {
+                data = block(k, cache);
+            } else if (pos == data.length) {
+                if (data.length < blockSize) return false;
+                data = block(++k, cache);
+                pos = 0;
+            }
+            return pos < data.length;
+        }
+    }
+}
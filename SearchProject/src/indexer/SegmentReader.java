@@ -0,0 +1,189 @@
+package indexer;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import util.ChecksumBlockInputStream;
+
+public class SegmentReader implements Closeable {
+    private final DataInputStream in;
+    private final int version;
+    private final long createdMillis;
+    private final int fieldCount;
+    private final String language;
+    private final String[] names;
+    private final String[] urls;
+    private final byte[][] norms;
+    private final float[] staticScores;
+    private final DocValues docValues = new DocValues();
+
+    private String term;
+    private String word;
+    private int df;
+    private int[] docs = new int[16];
+    private long[] freqs = new long[16];
+
+    private SegmentReader(DataInputStream raw) throws IOException {
+        if (raw.readInt() != SegmentWriter.MAGIC) throw new IOException("not an index segment");
+        version = raw.readInt();
+        if (version < 3 || version > SegmentWriter.VERSION) {
+            throw new IOException("unsupported segment version " + version);
+        }
+        this.in = new DataInputStream(new ChecksumBlockInputStream(raw));
+        createdMillis = in.readLong();
+        fieldCount = in.readInt();
+        int n = in.readInt();
+        String[] hosts = new String[in.readInt()];
+        for (int i = 0; i < hosts.length; i++) hosts[i] = in.readUTF();
+        String lang = version >= 6 ? in.readUTF() : "";
+        language = lang.isEmpty() ? null : lang;
+        names = new String[n];
+        urls = new String[n];
+        norms = new byte[fieldCount][n];
+        staticScores = new float[n];
+        for (int d = 0; d < n; d++) {
+            names[d] = in.readUTF();
+            urls[d] = in.readBoolean() ? in.readUTF() : null;
+            for (int f = 0; f < fieldCount; f++) norms[f][d] = in.readByte();
+            staticScores[d] = in.readFloat();
+            int host = (int) readVarLong() - 1;
+            int depth = in.readByte();
+            long fetched = in.readLong();
+            int length = (int) readVarLong();
+            docValues.set(d, host < 0 ? null : hosts[host], depth, fetched, length);
+        }
+    }
+
+    public static SegmentReader open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        try {
+            return new SegmentReader(in);
+        } catch (IOException e) {
+            in.close();
+            throw new IOException(file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public static InvertedIndex load(Path file) throws IOException {
+        InvertedIndex index = new InvertedIndex();
+        try (SegmentReader r = open(file)) {
+            r.copyDocs(index);
+            while (r.next()) {
+                PostingList pl = index.postingsFor(r.term());
+                index.addWord(r.term(), r.word());
+                for (int i = 0; i < r.df(); i++) pl.append(r.doc(i), r.freqs(i));
+            }
+        }
+        return index;
+    }
+
+    void copyDocs(InvertedIndex index) {
+        index.loadDocs(names, urls, norms, staticScores, docValues);
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public String language() {
+        return language;
+    }
+
+    public long createdMillis() {
+        return createdMillis;
+    }
+
+    public int docCount() {
+        return names.length;
+    }
+
+    public String docName(int doc) {
+        return names[doc];
+    }
+
+    public String docUrl(int doc) {
+        return urls[doc];
+    }
+
+    public byte normByte(int doc, Field field) {
+        int f = field.ordinal();
+        return f < fieldCount ? norms[f][doc] : 0;
+    }
+
+    public byte[] norms(int doc) {
+        byte[] out = new byte[Field.ALL.length];
+        for (Field f : Field.ALL) out[f.ordinal()] = normByte(doc, f);
+        return out;
+    }
+
+    public DocValues docValues() {
+        return docValues;
+    }
+
+    public float staticScore(int doc) {
+        return staticScores[doc];
+    }
+
+    public boolean next() throws IOException {
+        if (!in.readBoolean()) {
+            term = null;
+            word = null;
+            df = 0;
+            return false;
+        }
+        term = in.readUTF();
+        word = version >= 5 ? in.readUTF() : "";
+        if (word.isEmpty()) word = term;
+        df = (int) readVarLong();
+        if (df > docs.length) {
+            docs = Arrays.copyOf(docs, Math.max(df, docs.length * 2));
+            freqs = Arrays.copyOf(freqs, docs.length);
+        }
+        int doc = -1;
+        for (int i = 0; i < df; i++) {
+            doc += (int) readVarLong();
+            docs[i] = doc;
+            freqs[i] = readVarLong();
+        }
+        return true;
+    }
+
+    public String term() {
+        return term;
+    }
+
+    public String word() {
+        return word;
+    }
+
+    public int df() {
+        return df;
+    }
+
+    public int doc(int i) {
+        return docs[i];
+    }
+
+    public long freqs(int i) {
+        return freqs[i];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private long readVarLong() throws IOException {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+        }
+    }
+}
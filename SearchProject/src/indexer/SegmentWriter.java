@@ -0,0 +1,161 @@
+package indexer;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import util.ChecksumBlockOutputStream;
+import util.Utils;
+
+public class SegmentWriter implements Closeable {
+    static final int MAGIC = 0x53454731;
+    static final int VERSION = 6;
+    static final int TRAILER_BYTES = 16;
+
+    private final Path file;
+    private final Path tmp;
+    private final DataOutputStream raw;
+    private final ChecksumBlockOutputStream blocks;
+    private final DataOutputStream out;
+    private final List<String> terms = new ArrayList<>();
+    private final List<String> words = new ArrayList<>();
+    private int[] dfs = new int[1024];
+    private long[] offsets = new long[1024];
+    private final int docCount;
+    private int docsWritten;
+    private String lastTerm;
+    private boolean committed;
+
+    public SegmentWriter(Path file, long createdMillis, int docCount, List<String> hosts,
+                         String language) throws IOException {
+        Utils.ensureParentDirs(file);
+        this.file = file;
+        this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        this.raw = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16));
+        raw.writeInt(MAGIC);
+        raw.writeInt(VERSION);
+        this.blocks = new ChecksumBlockOutputStream(raw);
+        this.out = new DataOutputStream(blocks);
+        this.docCount = docCount;
+        out.writeLong(createdMillis);
+        out.writeInt(Field.ALL.length);
+        out.writeInt(docCount);
+        out.writeInt(hosts.size());
+        for (String h : hosts) out.writeUTF(h);
+        out.writeUTF(language == null ? "" : language);
+    }
+
+    public void addDoc(String name, String url, byte[] norms, float staticScore,
+                       int hostId, int pathDepth, long fetchTime, int contentLength) throws IOException {
+        if (docsWritten == docCount) throw new IllegalStateException("segment declared " + docCount + " docs");
+        out.writeUTF(name);
+        out.writeBoolean(url != null);
+        if (url != null) out.writeUTF(url);
+        for (int f = 0; f < Field.ALL.length; f++) {
+            out.writeByte(norms == null || f >= norms.length ? 0 : norms[f]);
+        }
+        out.writeFloat(staticScore);
+        writeVarLong(hostId + 1L);
+        out.writeByte(pathDepth);
+        out.writeLong(fetchTime);
+        writeVarLong(contentLength);
+        docsWritten++;
+    }
+
+    public void addTerm(String term, PostingList postings) throws IOException {
+        addTerm(term, term, postings);
+    }
+
+    public void addTerm(String term, String word, PostingList postings) throws IOException {
+        beginTerm(term, word, postings.df());
+        int prev = -1;
+        for (int i = 0; i < postings.df(); i++) {
+            int doc = postings.doc(i);
+            writeVarLong(doc - prev);
+            writeVarLong(postings.packedFreqs(i));
+            prev = doc;
+        }
+    }
+
+    public void addTerm(String term, int[] docs, long[] freqs, int n) throws IOException {
+        addTerm(term, term, docs, freqs, n);
+    }
+
+    public void addTerm(String term, String word, int[] docs, long[] freqs, int n) throws IOException {
+        beginTerm(term, word, n);
+        int prev = -1;
+        for (int i = 0; i < n; i++) {
+            writeVarLong(docs[i] - prev);
+            writeVarLong(freqs[i]);
+            prev = docs[i];
+        }
+    }
+
+    private void beginTerm(String term, String word, int df) throws IOException {
+        if (docsWritten != docCount) {
+            throw new IllegalStateException("only " + docsWritten + " of " + docCount + " docs written");
+        }
+        if (lastTerm != null && lastTerm.compareTo(term) >= 0) {
+            throw new IllegalStateException("terms out of order: " + lastTerm + " >= " + term);
+        }
+        lastTerm = term;
+        out.writeBoolean(true);
+        String shown = word == null || word.equals(term) ? "" : word;
+        out.writeUTF(term);
+        out.writeUTF(shown);
+        writeVarLong(df);
+
+        int t = terms.size();
+        if (t == dfs.length) {
+            dfs = Arrays.copyOf(dfs, t * 2);
+            offsets = Arrays.copyOf(offsets, t * 2);
+        }
+        terms.add(term);
+        words.add(shown);
+        dfs[t] = df;
+        offsets[t] = blocks.position();
+    }
+
+    public void commit() throws IOException {
+        out.writeBoolean(false);
+        long dictionary = blocks.position();
+        out.writeInt(terms.size());
+        long prev = 0;
+        for (int t = 0; t < terms.size(); t++) {
+            out.writeUTF(terms.get(t));
+            out.writeUTF(words.get(t));
+            writeVarLong(dfs[t]);
+            writeVarLong(offsets[t] - prev);
+            prev = offsets[t];
+        }
+        blocks.finish();
+
+        byte[] trailer = new byte[TRAILER_BYTES - 4];
+        ByteBuffer.wrap(trailer).putLong(dictionary).putInt(blocks.blockSize());
+        raw.write(trailer);
+        raw.writeInt((int) Utils.crc32c(trailer));
+        raw.close();
+        Utils.publish(tmp, file);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (committed) return;
+        out.close();
+        Files.deleteIfExists(tmp);
+    }
+
+    private void writeVarLong(long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+}
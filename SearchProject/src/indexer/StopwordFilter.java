@@ -0,0 +1,49 @@
+package indexer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class StopwordFilter implements TokenFilter {
+
+    public static final Set<String> GERMAN = words(
+            "aber", "alle", "allem", "allen", "aller", "alles", "als", "also", "am", "an", "ander", "andere",
+            "anderem", "anderen", "anderer", "anderes", "auch", "auf", "aus", "bei", "bin", "bis", "bist",
+            "da", "damit", "dann", "das", "dass", "da\u00df", "dem", "den", "denn", "der", "des", "dich", "die",
+            "dies", "diese", "diesem", "diesen", "dieser", "dieses", "dir", "doch", "dort", "du", "durch",
+            "ein", "eine", "einem", "einen", "einer", "eines", "er", "es", "etwas", "euch", "euer", "f\u00fcr",
+            "gegen", "hab", "habe", "haben", "hat", "hatte", "hier", "hin", "ich", "ihm", "ihn", "ihnen",
+            "ihr", "ihre", "im", "in", "ist", "ja", "jede", "jedem", "jeden", "jeder", "jedes", "kann",
+            "kein", "keine", "man", "mein", "meine", "mich", "mir", "mit", "nach", "nicht", "noch", "nun",
+            "nur", "ob", "oder", "ohne", "sehr", "sein", "seine", "sich", "sie", "sind", "so", "solche",
+            "soll", "sollte", "sondern", "um", "und", "uns", "unser", "unter", "vom", "von", "vor", "war",
+            "waren", "was", "weil", "welche", "wenn", "werde", "werden", "wie", "wir", "wird", "wo", "zu",
+            "zum", "zur", "\u00fcber");
+
+    public static final Set<String> ENGLISH = words(
+            "a", "about", "after", "all", "also", "an", "and", "any", "are", "as", "at", "be", "been",
+            "being", "but", "by", "can", "could", "did", "do", "does", "for", "from", "had", "has", "have",
+            "he", "her", "his", "how", "i", "if", "in", "into", "is", "it", "its", "may", "more", "most",
+            "no", "not", "of", "on", "or", "other", "our", "over", "she", "should", "so", "some", "such",
+            "than", "that", "the", "their", "them", "then", "there", "these", "they", "this", "those", "to",
+            "up", "was", "we", "were", "what", "when", "where", "which", "while", "who", "will", "with",
+            "would", "you", "your");
+
+    private final Set<String> stopwords;
+
+    @SafeVarargs
+    public StopwordFilter(Set<String>... sets) {
+        Set<String> all = new HashSet<>();
+        for (Set<String> s : sets) all.addAll(s);
+        this.stopwords = all;
+    }
+
+    @Override
+    public String apply(String token) {
+        return stopwords.contains(token) ? null : token;
+    }
+
+    private static Set<String> words(String... w) {
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(w)));
+    }
+}
@@ -2,12 +2,50 @@ package indexer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class TextParser {
+    private static final Pattern TITLE_PATTERN =
+        Pattern.compile("(?is)<title[^>]*>(.*?)</title\\s*>");
+
+    private static final Pattern HEADING_PATTERN =
+        Pattern.compile("(?is)<h([1-3])\\b[^>]*>(.*?)</h\\1\\s*>");
+
     public List<String> parse(String htmlContent) {
-        List<String> tokens = new ArrayList<>();
+        return tokenize(extractText(htmlContent));
+    }
+
+    public String extractTitle(String htmlContent) {
         if (htmlContent == null || htmlContent.isEmpty()) {
-            return tokens;
+            return "";
+        }
+        Matcher m = TITLE_PATTERN.matcher(htmlContent);
+        return m.find() ? extractText(m.group(1)) : "";
+    }
+
+    public String extractHeadings(String htmlContent) {
+        if (htmlContent == null || htmlContent.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        Matcher m = HEADING_PATTERN.matcher(htmlContent);
+        while (m.find()) {
+            sb.append(extractText(m.group(2))).append(' ');
+        }
+        return sb.toString();
+    }
+
+    public String extractBody(String htmlContent) {
+        if (htmlContent == null || htmlContent.isEmpty()) {
+            return "";
+        }
+        return extractText(TITLE_PATTERN.matcher(htmlContent).replaceAll(" "));
+    }
+
+    public String extractText(String htmlContent) {
+        if (htmlContent == null || htmlContent.isEmpty()) {
+            return "";
         }
 
         String text = htmlContent
@@ -24,6 +62,15 @@ public class TextParser {
                    .replace("&#39;", "'")
                    .replace("&#x27;", "'");
 
+        return text;
+    }
+
+    public List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
         text = text.toLowerCase(Locale.ROOT);
 
         String[] raw = text.split("[^\\p{L}\\p{N}'-]+");
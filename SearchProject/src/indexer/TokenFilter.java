@@ -0,0 +1,9 @@
+package indexer;
+
+public interface TokenFilter {
+    String apply(String token);
+
+    default boolean folds() {
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package indexer;
+import java.text.Normalizer;
+
+public class UnicodeNormalizer implements TokenFilter {
+    @Override
+    public String apply(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) >= 0x80) {
+                return Normalizer.normalize(token, Normalizer.Form.NFKC);
+            }
+        }
+        return token;
+    }
+
+    @Override
+    public boolean folds() {
+        return true;
+    }
+}
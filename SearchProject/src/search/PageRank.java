@@ -0,0 +1,126 @@
+package search;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import crawler.CsrGraph;
+import util.Logger;
+
+public class PageRank {
+    private static final int MIN_NODES_PER_TASK = 4096;
+
+    private final double damping;
+    private final int maxIterations;
+    private final double tolerance;
+    private final int threads;
+
+    public PageRank() {
+        this(0.85, 50, 1e-6, Runtime.getRuntime().availableProcessors());
+    }
+
+    public PageRank(double damping, int maxIterations, double tolerance, int threads) {
+        this.damping = damping;
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+        this.threads = Math.max(1, threads);
+    }
+
+    public double[] compute(CsrGraph graph) {
+        final int n = graph.nodeCount();
+        if (n == 0) return new double[0];
+
+        final CsrGraph in = graph.transpose();
+        final int[] inOffsets = in.offsets();
+        final int[] inSources = in.targets();
+        final int[] outDegree = new int[n];
+        for (int v = 0; v < n; v++) outDegree[v] = graph.outDegree(v);
+
+        final double[] rank = new double[n];
+        final double[] next = new double[n];
+        final double[] contrib = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+
+        int tasks = Math.max(1, Math.min(threads * 4, n / MIN_NODES_PER_TASK));
+        ExecutorService pool = tasks > 1
+                ? Executors.newFixedThreadPool(Math.min(threads, tasks), r -> {
+                    Thread t = new Thread(r, "pagerank");
+                    t.setDaemon(true);
+                    return t;
+                })
+                : null;
+
+        try {
+            int chunk = (n + tasks - 1) / tasks;
+            for (int iter = 0; iter < maxIterations; iter++) {
+                double dangling = runChunks(pool, tasks, chunk, n, (from, to) -> {
+                    double d = 0.0;
+                    for (int v = from; v < to; v++) {
+                        if (outDegree[v] == 0) {
+                            d += rank[v];
+                            contrib[v] = 0.0;
+                        } else {
+                            contrib[v] = rank[v] / outDegree[v];
+                        }
+                    }
+                    return d;
+                });
+
+                final double base = (1.0 - damping) / n + damping * dangling / n;
+                double delta = runChunks(pool, tasks, chunk, n, (from, to) -> {
+                    double d = 0.0;
+                    for (int v = from; v < to; v++) {
+                        double sum = 0.0;
+                        for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+                            sum += contrib[inSources[i]];
+                        }
+                        double r = base + damping * sum;
+                        d += Math.abs(r - rank[v]);
+                        next[v] = r;
+                    }
+                    return d;
+                });
+
+                System.arraycopy(next, 0, rank, 0, n);
+                if (delta < tolerance) {
+                    Logger.debug("PageRank converged after " + (iter + 1) + " iterations");
+                    break;
+                }
+            }
+        } finally {
+            if (pool != null) pool.shutdownNow();
+        }
+        return rank;
+    }
+
+    private interface RangeTask {
+        double run(int from, int to);
+    }
+
+    private static double runChunks(ExecutorService pool, int tasks, int chunk, int n, RangeTask task) {
+        if (pool == null) return task.run(0, n);
+
+        List<Callable<Double>> calls = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            final int from = t * chunk;
+            final int to = Math.min(n, from + chunk);
+            if (from >= to) break;
+            calls.add(() -> task.run(from, to));
+        }
+
+        double total = 0.0;
+        try {
+            for (Future<Double> f : pool.invokeAll(calls)) total += f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("PageRank interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("PageRank task failed", e.getCause());
+        }
+        return total;
+    }
+}
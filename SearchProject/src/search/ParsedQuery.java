@@ -0,0 +1,178 @@
+package search;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+import indexer.DocValues;
+import indexer.IndexReader;
+import util.Logger;
+
+public final class ParsedQuery {
+    private final String text;
+    private final List<String> hosts;
+    private final List<String> sites;
+    private final List<String> paths;
+    private final long fromMillis;
+    private final long toMillis;
+
+    private ParsedQuery(String text, List<String> hosts, List<String> sites, List<String> paths,
+                        long fromMillis, long toMillis) {
+        this.text = text;
+        this.hosts = hosts;
+        this.sites = sites;
+        this.paths = paths;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    public static ParsedQuery parse(String query) {
+        List<String> hosts = new ArrayList<>();
+        List<String> sites = new ArrayList<>();
+        List<String> paths = new ArrayList<>();
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        StringBuilder text = new StringBuilder();
+
+        if (query != null) {
+            for (String part : query.trim().split("\\s+")) {
+                int colon = part.indexOf(':');
+                String key = colon > 0 ? part.substring(0, colon).toLowerCase(Locale.ROOT) : "";
+                String value = colon > 0 ? part.substring(colon + 1) : "";
+                if (value.isEmpty()) key = "";
+
+                switch (key) {
+                    case "host":
+                        hosts.add(value.toLowerCase(Locale.ROOT));
+                        break;
+                    case "site":
+                        sites.add(stripWww(value.toLowerCase(Locale.ROOT)));
+                        break;
+                    case "path":
+                        paths.add(value.startsWith("/") ? value : "/" + value);
+                        break;
+                    case "after":
+                        from = Math.max(from, startOf(value, Long.MIN_VALUE));
+                        break;
+                    case "before":
+                        to = Math.min(to, startOf(value, Long.MAX_VALUE));
+                        break;
+                    case "date": {
+                        int dots = value.indexOf("..");
+                        String a = dots < 0 ? value : value.substring(0, dots);
+                        String b = dots < 0 ? value : value.substring(dots + 2);
+                        if (!a.isEmpty()) from = Math.max(from, startOf(a, Long.MIN_VALUE));
+                        if (!b.isEmpty()) to = Math.min(to, endOf(b));
+                        break;
+                    }
+                    default:
+                        if (text.length() > 0) text.append(' ');
+                        text.append(part);
+                }
+            }
+        }
+        return new ParsedQuery(text.toString(), hosts, sites, paths, from, to);
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public List<String> hosts() {
+        return Collections.unmodifiableList(hosts);
+    }
+
+    public List<String> sites() {
+        return Collections.unmodifiableList(sites);
+    }
+
+    public List<String> paths() {
+        return Collections.unmodifiableList(paths);
+    }
+
+    public long fromMillis() {
+        return fromMillis;
+    }
+
+    public long toMillis() {
+        return toMillis;
+    }
+
+    public boolean hasFilters() {
+        return !hosts.isEmpty() || !sites.isEmpty() || !paths.isEmpty()
+                || fromMillis != Long.MIN_VALUE || toMillis != Long.MAX_VALUE;
+    }
+
+    IntPredicate filter(IndexReader index) {
+        if (!hasFilters()) return null;
+        DocValues dv = index.docValues();
+
+        boolean[] allowed = null;
+        if (!hosts.isEmpty() || !sites.isEmpty()) {
+            allowed = new boolean[dv.hostCount()];
+            for (int h = 0; h < allowed.length; h++) allowed[h] = matchesHost(dv.host(h));
+        }
+        boolean[] hostOk = allowed;
+        boolean dated = fromMillis != Long.MIN_VALUE || toMillis != Long.MAX_VALUE;
+
+        return doc -> {
+            if (hostOk != null) {
+                int h = dv.hostId(doc);
+                if (h < 0 || !hostOk[h]) return false;
+            }
+            if (dated) {
+                long t = dv.fetchTime(doc);
+                if (t == 0L || t < fromMillis || t >= toMillis) return false;
+            }
+            if (!paths.isEmpty()) {
+                String path = DocValues.pathOf(index.docUrl(doc));
+                for (String p : paths) {
+                    if (path.startsWith(p)) return true;
+                }
+                return false;
+            }
+            return true;
+        };
+    }
+
+    private boolean matchesHost(String host) {
+        for (String h : hosts) {
+            if (host.equals(h)) return true;
+        }
+        String bare = stripWww(host);
+        for (String s : sites) {
+            if (bare.equals(s) || bare.endsWith("." + s)) return true;
+        }
+        return false;
+    }
+
+    private static String stripWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    private static long startOf(String value, long fallback) {
+        try {
+            if (value.indexOf('T') > 0) {
+                return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            Logger.warn("Ignoring unparseable date '" + value + "' (expected yyyy-MM-dd or yyyy-MM-ddTHH:mm)");
+            return fallback;
+        }
+    }
+
+    private static long endOf(String value) {
+        if (value.indexOf('T') > 0) return startOf(value, Long.MAX_VALUE);
+        try {
+            return LocalDate.parse(value).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            Logger.warn("Ignoring unparseable date '" + value + "' (expected yyyy-MM-dd or yyyy-MM-ddTHH:mm)");
+            return Long.MAX_VALUE;
+        }
+    }
+}
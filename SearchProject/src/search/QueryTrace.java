@@ -0,0 +1,98 @@
+package search;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class QueryTrace {
+    private final String query;
+    private final List<String> terms = new ArrayList<>();
+    private final List<long[]> termStats = new ArrayList<>();
+    private boolean filtered;
+    private long parseNanos;
+    private long scoreNanos;
+    private long selectNanos;
+    private long totalNanos;
+    private long cost;
+    private int ranges;
+    private int hits;
+
+    public QueryTrace(String query) {
+        this.query = query;
+    }
+
+    void parsed(long nanos, boolean filtered) {
+        this.parseNanos = nanos;
+        this.filtered = filtered;
+    }
+
+    void term(String term, int df, long nanos) {
+        terms.add(term);
+        termStats.add(new long[] {df, nanos});
+    }
+
+    void scored(long scoreNanos, long selectNanos, int ranges, long cost) {
+        this.scoreNanos += scoreNanos;
+        this.selectNanos += selectNanos;
+        this.ranges = ranges;
+        this.cost = cost;
+    }
+
+    void finished(long totalNanos, int hits) {
+        this.totalNanos = totalNanos;
+        this.hits = hits;
+    }
+
+    public String query() {
+        return query;
+    }
+
+    public long parseNanos() {
+        return parseNanos;
+    }
+
+    public long postingsNanos() {
+        long sum = 0;
+        for (long[] s : termStats) sum += s[1];
+        return sum;
+    }
+
+    public long scoreNanos() {
+        return scoreNanos;
+    }
+
+    public long selectNanos() {
+        return selectNanos;
+    }
+
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    public int hits() {
+        return hits;
+    }
+
+    public String explain() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Query \"%s\": %d hits in %.3f ms (%d terms%s)%n",
+                query, hits, ms(totalNanos), terms.size(), filtered ? ", filtered" : ""));
+        sb.append(String.format(Locale.ROOT, "  parse     %10.3f ms%n", ms(parseNanos)));
+        for (int i = 0; i < terms.size(); i++) {
+            long[] s = termStats.get(i);
+            sb.append(String.format(Locale.ROOT, "  postings  %10.3f ms  %-20s df %d%n", ms(s[1]), terms.get(i), s[0]));
+        }
+        sb.append(String.format(Locale.ROOT, "  score     %10.3f ms  %d postings in %d range%s%n",
+                ms(scoreNanos), cost, ranges, ranges == 1 ? "" : "s (summed)"));
+        sb.append(String.format(Locale.ROOT, "  top-k     %10.3f ms", ms(selectNanos)));
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -1,40 +1,425 @@
 package search;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+import indexer.Analyzer;
+import indexer.Analyzers;
+import indexer.DocValues;
+import indexer.Field;
+import indexer.IndexReader;
 import indexer.InvertedIndex;
 import indexer.PostingList;
+import util.Logger;
 
 public class Search {
+    private static final int MIN_DOCS_PER_RANGE = 4096;
 
-    public List<String> search(String query, InvertedIndex index) {
-        if (query == null || query.isEmpty() || index == null) return Collections.emptyList();
+    private final Analyzer analyzer;
+    private final double[] boosts = new double[Field.ALL.length];
+    private double staticWeight = 0.3;
+    private long parallelThreshold = Long.getLong("search.parallelThreshold", 200_000L);
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private long slowQueryNanos = Long.getLong("search.slowQueryMs", -1L) * 1_000_000L;
+    private double slowQuerySample = sampleProperty();
+
+    public Search() {
+        this(Analyzers.defaultAnalyzer());
+    }
+
+    public Search(Analyzer analyzer) {
+        this.analyzer = analyzer;
+        for (Field f : Field.ALL) {
+            boosts[f.ordinal()] = f.defaultBoost();
+        }
+    }
+
+    public void setBoost(Field field, double boost) {
+        boosts[field.ordinal()] = Math.max(0.0, boost);
+    }
+
+    public double getBoost(Field field) {
+        return boosts[field.ordinal()];
+    }
+
+    public void setStaticWeight(double weight) {
+        this.staticWeight = Math.max(0.0, weight);
+    }
+
+    public List<String> search(String query, IndexReader index) {
+        List<SearchHit> hits = search(query, index, Integer.MAX_VALUE);
+        List<String> result = new ArrayList<>(hits.size());
+        for (SearchHit h : hits) result.add(h.name());
+        return result;
+    }
+
+    public List<SearchHit> search(String query, IndexReader index, int limit) {
+        return execute(query, index, limit).hits();
+    }
+
+    public SearchResults execute(String query, IndexReader index, int limit) {
+        return execute(query, index, limit, null);
+    }
+
+    public SearchResults execute(String query, IndexReader index, int limit, QueryTrace trace) {
+        if (trace == null && slowQueryNanos >= 0 && ThreadLocalRandom.current().nextDouble() < slowQuerySample) {
+            trace = new QueryTrace(query);
+        }
+        if (trace == null) return run(query, index, limit, null, 0L);
+
+        long start = System.nanoTime();
+        SearchResults results = run(query, index, limit, trace, start);
+        trace.finished(System.nanoTime() - start, results.totalHits());
+        if (slowQueryNanos >= 0 && trace.totalNanos() >= slowQueryNanos) {
+            for (String line : ("Slow query. " + trace.explain()).split("\n")) Logger.warn(line);
+        }
+        return results;
+    }
+
+    public void setSlowQueryLog(long thresholdMillis, double sample) {
+        this.slowQueryNanos = thresholdMillis < 0 ? -1L : thresholdMillis * 1_000_000L;
+        this.slowQuerySample = Math.max(0.0, Math.min(1.0, sample));
+    }
+
+    private static double sampleProperty() {
+        String value = System.getProperty("search.slowQuerySample", "1.0");
+        try {
+            return Math.max(0.0, Math.min(1.0, Double.parseDouble(value.trim())));
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid value for search.slowQuerySample: " + value + "; using 1.0");
+            return 1.0;
+        }
+    }
+
+    private SearchResults run(String query, IndexReader index, int limit, QueryTrace trace, long start) {
+        if (query == null || query.isEmpty() || index == null || limit <= 0) return SearchResults.empty();
         final int N = Math.max(0, index.totalDocs());
+        if (N == 0) return SearchResults.empty();
 
-        Map<String, Double> scores = new HashMap<>();
-        String[] terms = query.toLowerCase().split("\\W+");
+        ParsedQuery parsed = ParsedQuery.parse(query);
+        List<String> terms = analyzer.analyze(parsed.text());
+        IntPredicate filter = parsed.filter(index);
+        if (trace != null) trace.parsed(System.nanoTime() - start, filter != null);
+        if (terms.isEmpty() && filter == null) return SearchResults.empty();
 
+        List<PostingList> lists = new ArrayList<>(terms.size());
+        List<Double> idfs = new ArrayList<>(terms.size());
+        long cost = 0;
         for (String term : terms) {
-            if (term.isEmpty()) continue;
+            long t0 = trace == null ? 0L : System.nanoTime();
             PostingList postings = index.getPostings(term);
+            if (trace != null) trace.term(term, postings == null ? 0 : postings.df(), System.nanoTime() - t0);
             if (postings == null || postings.isEmpty()) continue;
+            lists.add(postings);
+            idfs.add(Math.log((N + 1.0) / (postings.df() + 1.0)) + 1.0);
+            cost += postings.df();
+        }
+        if (terms.isEmpty()) cost = N;
 
-            int df = postings.df();
-            double idf = Math.log((N + 1.0) / (df + 1.0)) + 1.0;
+        Query q = new Query(index, lists, idfs, filter, normTables(index), limit, trace != null);
+        int ranges = rangesFor(cost, N);
 
-            for (Map.Entry<String, Integer> e : postings.entries()) {
-                double tf = 1.0 + Math.log(e.getValue());
-                scores.merge(e.getKey(), tf * idf, Double::sum);
+        Range[] parts = new Range[ranges];
+        if (ranges == 1) {
+            parts[0] = q.score(0, N, terms.isEmpty());
+        } else {
+            List<ForkJoinTask<Range>> tasks = new ArrayList<>(ranges);
+            for (int r = 0; r < ranges; r++) {
+                int lo = (int) ((long) N * r / ranges);
+                int hi = (int) ((long) N * (r + 1) / ranges);
+                boolean scan = terms.isEmpty();
+                tasks.add(pool.submit(() -> q.score(lo, hi, scan)));
             }
+            for (int r = 0; r < ranges; r++) parts[r] = tasks.get(r).join();
         }
+        if (trace == null) return merge(index, parts, limit);
 
-        List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
-        ranked.sort(
-                Comparator.<Map.Entry<String, Double>>comparingDouble(Map.Entry::getValue)
-                        .reversed()
-                        .thenComparing(Map.Entry::getKey)
-        );
+        long t0 = System.nanoTime();
+        SearchResults results = merge(index, parts, limit);
+        long scoreNanos = 0;
+        long selectNanos = System.nanoTime() - t0;
+        for (Range part : parts) {
+            scoreNanos += part.scoreNanos;
+            selectNanos += part.selectNanos;
+        }
+        trace.scored(scoreNanos, selectNanos, ranges, cost);
+        return results;
+    }
 
-        List<String> result = new ArrayList<>(ranked.size());
-        for (Map.Entry<String, Double> e : ranked) result.add(e.getKey());
-        return result;
+    int rangesFor(long cost, int docs) {
+        int parallelism = pool.getParallelism();
+        if (parallelism < 2 || cost < parallelThreshold) return 1;
+        long byCost = Math.max(2, cost / Math.max(1, parallelThreshold / 4));
+        long byDocs = Math.max(1, docs / MIN_DOCS_PER_RANGE);
+        return (int) Math.max(1, Math.min(Math.min(parallelism * 4L, byCost), byDocs));
+    }
+
+    public void setParallelThreshold(long postings) {
+        this.parallelThreshold = Math.max(1, postings);
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool == null ? ForkJoinPool.commonPool() : pool;
+    }
+
+    private static final class Range {
+        final int[] docs;
+        final double[] scores;
+        final int hits;
+        final int[] facets;
+        final long scoreNanos;
+        final long selectNanos;
+
+        Range(int[] docs, double[] scores, int hits, int[] facets, long scoreNanos, long selectNanos) {
+            this.docs = docs;
+            this.scores = scores;
+            this.hits = hits;
+            this.facets = facets;
+            this.scoreNanos = scoreNanos;
+            this.selectNanos = selectNanos;
+        }
+    }
+
+    private final class Query {
+        final IndexReader index;
+        final DocValues dv;
+        final PostingList[] lists;
+        final double[] idfs;
+        final IntPredicate filter;
+        final double[][] normTables;
+        final int limit;
+        final boolean timed;
+
+        Query(IndexReader index, List<PostingList> lists, List<Double> idfs, IntPredicate filter,
+              double[][] normTables, int limit, boolean timed) {
+            this.index = index;
+            this.dv = index.docValues();
+            this.lists = lists.toArray(new PostingList[0]);
+            this.idfs = new double[idfs.size()];
+            for (int i = 0; i < this.idfs.length; i++) this.idfs[i] = idfs.get(i);
+            this.filter = filter;
+            this.normTables = normTables;
+            this.limit = limit;
+            this.timed = timed;
+        }
+
+        Range score(int lo, int hi, boolean scan) {
+            long t0 = timed ? System.nanoTime() : 0L;
+            int[] facets = new int[dv.hostCount()];
+            TopDocs top = new TopDocs(index, limit);
+            int hits = 0;
+
+            if (scan) {
+                for (int doc = lo; doc < hi; doc++) {
+                    if (!filter.test(doc)) continue;
+                    hits++;
+                    int h = dv.hostId(doc);
+                    if (h >= 0) facets[h]++;
+                    top.offer(doc, withStatic(doc, 1.0));
+                }
+            }
+
+            int[] pos = new int[lists.length];
+            for (int t = 0; t < lists.length; t++) pos[t] = lists[t].seek(lo);
+            while (true) {
+                int doc = hi;
+                for (int t = 0; t < lists.length; t++) {
+                    if (pos[t] < lists[t].df() && lists[t].doc(pos[t]) < doc) doc = lists[t].doc(pos[t]);
+                }
+                if (doc >= hi) break;
+
+                double score = 0.0;
+                boolean matched = false;
+                for (int t = 0; t < lists.length; t++) {
+                    PostingList postings = lists[t];
+                    if (pos[t] >= postings.df() || postings.doc(pos[t]) != doc) continue;
+                    long packed = postings.packedFreqs(pos[t]++);
+
+                    double wtf = 0.0;
+                    for (Field f : Field.ALL) {
+                        int tf = PostingList.unpack(packed, f);
+                        if (tf == 0) continue;
+                        int fi = f.ordinal();
+                        wtf += boosts[fi] * tf * normTables[fi][index.normByte(doc, f) & 0xFF];
+                    }
+                    if (wtf <= 0.0) continue;
+                    matched = true;
+                    double tf = wtf >= 1.0 ? 1.0 + Math.log(wtf) : wtf;
+                    score += tf * idfs[t];
+                }
+                if (!matched || (filter != null && !filter.test(doc))) continue;
+
+                hits++;
+                int h = dv.hostId(doc);
+                if (h >= 0) facets[h]++;
+                top.offer(doc, withStatic(doc, score));
+            }
+
+            long t1 = timed ? System.nanoTime() : 0L;
+            top.sort();
+            int[] docs = top.docs();
+            double[] topScores = top.scores();
+            long t2 = timed ? System.nanoTime() : 0L;
+            return new Range(docs, topScores, hits, facets, t1 - t0, t2 - t1);
+        }
+
+        private double withStatic(int doc, double score) {
+            return staticWeight > 0.0 ? score * (1.0 + staticWeight * Math.log1p(index.staticScore(doc))) : score;
+        }
+    }
+
+    private static final class TopDocs {
+        private final IndexReader index;
+        private final int limit;
+        private int[] docs;
+        private double[] scores;
+        private int size;
+
+        TopDocs(IndexReader index, int limit) {
+            this.index = index;
+            this.limit = Math.max(1, limit);
+            this.docs = new int[Math.min(this.limit, 64)];
+            this.scores = new double[docs.length];
+        }
+
+        void offer(int doc, double score) {
+            if (size == docs.length && size < limit) {
+                int cap = (int) Math.min(limit, docs.length * 2L);
+                docs = Arrays.copyOf(docs, cap);
+                scores = Arrays.copyOf(scores, cap);
+            }
+            if (size < docs.length) {
+                docs[size] = doc;
+                scores[size] = score;
+                up(size++);
+            } else if (worse(0, doc, score)) {
+                docs[0] = doc;
+                scores[0] = score;
+                down(0);
+            }
+        }
+
+        int[] docs() {
+            return Arrays.copyOf(docs, size);
+        }
+
+        double[] scores() {
+            return Arrays.copyOf(scores, size);
+        }
+
+        void sort() {
+            for (int n = size - 1; n > 0; n--) {
+                swap(0, n);
+                int keep = size;
+                size = n;
+                down(0);
+                size = keep;
+            }
+        }
+
+        private boolean worse(int i, int doc, double score) {
+            int c = Double.compare(scores[i], score);
+            return c != 0 ? c < 0 : index.docName(docs[i]).compareTo(index.docName(doc)) > 0;
+        }
+
+        private void up(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(i, docs[parent], scores[parent])) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void down(int i) {
+            while (true) {
+                int l = 2 * i + 1;
+                if (l >= size) return;
+                int worst = l + 1 < size && worse(l + 1, docs[l], scores[l]) ? l + 1 : l;
+                if (!worse(worst, docs[i], scores[i])) return;
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int d = docs[a];
+            docs[a] = docs[b];
+            docs[b] = d;
+            double sc = scores[a];
+            scores[a] = scores[b];
+            scores[b] = sc;
+        }
+    }
+
+    private static SearchResults merge(IndexReader index, Range[] parts, int limit) {
+        int hits = 0;
+        int candidates = 0;
+        int[] facets = parts[0].facets;
+        for (int r = 0; r < parts.length; r++) {
+            hits += parts[r].hits;
+            candidates += parts[r].docs.length;
+            if (r > 0) {
+                for (int h = 0; h < facets.length; h++) facets[h] += parts[r].facets[h];
+            }
+        }
+
+        int[] docs = new int[candidates];
+        double[] scores = new double[candidates];
+        int c = 0;
+        for (Range part : parts) {
+            System.arraycopy(part.docs, 0, docs, c, part.docs.length);
+            System.arraycopy(part.scores, 0, scores, c, part.scores.length);
+            c += part.docs.length;
+        }
+
+        Integer[] order = new Integer[candidates];
+        for (int i = 0; i < candidates; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Double.compare(scores[b], scores[a]);
+            return cmp != 0 ? cmp : index.docName(docs[a]).compareTo(index.docName(docs[b]));
+        });
+
+        int k = Math.min(limit, candidates);
+        List<SearchHit> result = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            int d = docs[order[i]];
+            result.add(new SearchHit(d, index.docName(d), index.docUrl(d), scores[order[i]]));
+        }
+        return new SearchResults(result, hits, hostFacets(index.docValues(), facets));
+    }
+
+    private static Map<String, Integer> hostFacets(DocValues dv, int[] counts) {
+        Integer[] ids = new Integer[counts.length];
+        int n = 0;
+        for (int h = 0; h < counts.length; h++) {
+            if (counts[h] > 0) ids[n++] = h;
+        }
+        Arrays.sort(ids, 0, n, (a, b) -> counts[a] != counts[b]
+                ? Integer.compare(counts[b], counts[a])
+                : dv.host(a).compareTo(dv.host(b)));
+        Map<String, Integer> facets = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) facets.put(dv.host(ids[i]), counts[ids[i]]);
+        return facets;
+    }
+
+    public List<String> queryTerms(String query) {
+        if (query == null || query.isEmpty()) return Collections.emptyList();
+        return analyzer.analyze(ParsedQuery.parse(query).text());
+    }
+
+    private static double[][] normTables(IndexReader index) {
+        double[][] tables = new double[Field.ALL.length][256];
+        for (Field f : Field.ALL) {
+            double avg = index.averageFieldLength(f);
+            double b = f.lengthNorm();
+            double[] t = tables[f.ordinal()];
+            for (int code = 0; code < 256; code++) {
+                int len = InvertedIndex.decodeLength((byte) code);
+                t[code] = (avg <= 0.0 || len == 0) ? 1.0 : 1.0 / ((1.0 - b) + b * len / avg);
+            }
+        }
+        return tables;
     }
 }
@@ -0,0 +1,31 @@
+package search;
+
+public final class SearchHit {
+    private final int docId;
+    private final String name;
+    private final String url;
+    private final double score;
+
+    public SearchHit(int docId, String name, String url, double score) {
+        this.docId = docId;
+        this.name = name;
+        this.url = url;
+        this.score = score;
+    }
+
+    public int docId() {
+        return docId;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public double score() {
+        return score;
+    }
+}
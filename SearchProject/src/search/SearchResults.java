@@ -0,0 +1,32 @@
+package search;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public final class SearchResults {
+    private final List<SearchHit> hits;
+    private final int totalHits;
+    private final Map<String, Integer> hostFacets;
+
+    public SearchResults(List<SearchHit> hits, int totalHits, Map<String, Integer> hostFacets) {
+        this.hits = hits;
+        this.totalHits = totalHits;
+        this.hostFacets = hostFacets;
+    }
+
+    public static SearchResults empty() {
+        return new SearchResults(Collections.emptyList(), 0, Collections.emptyMap());
+    }
+
+    public List<SearchHit> hits() {
+        return hits;
+    }
+
+    public int totalHits() {
+        return totalHits;
+    }
+
+    public Map<String, Integer> hostFacets() {
+        return hostFacets;
+    }
+}
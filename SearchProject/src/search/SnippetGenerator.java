@@ -0,0 +1,146 @@
+package search;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import indexer.Analyzer;
+
+public class SnippetGenerator {
+    private static final int MAX_SCAN_CHARS = 20_000;
+    private static final int MAX_TERMS = 64;
+    private static final int MAX_CACHED_TOKENS = 100_000;
+
+    private final Analyzer analyzer;
+    private final int windowTokens;
+    private final int maxChars;
+    private final String open;
+    private final String close;
+    private final Map<String, String> analyzed = new ConcurrentHashMap<>();
+
+    public SnippetGenerator(Analyzer analyzer) {
+        this(analyzer, 30, 240, "[", "]");
+    }
+
+    public SnippetGenerator(Analyzer analyzer, int windowTokens, int maxChars, String open, String close) {
+        this.analyzer = analyzer;
+        this.windowTokens = Math.max(4, windowTokens);
+        this.maxChars = Math.max(40, maxChars);
+        this.open = open;
+        this.close = close;
+    }
+
+    public String snippet(String text, Collection<String> queryTerms) {
+        if (text == null || text.isEmpty()) return "";
+
+        Map<String, Integer> termIds = new HashMap<>();
+        for (String t : queryTerms) {
+            if (termIds.size() == MAX_TERMS) break;
+            termIds.putIfAbsent(t, termIds.size());
+        }
+
+        int limit = Math.min(text.length(), MAX_SCAN_CHARS);
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int[] match = new int[64];
+        int n = 0;
+
+        int i = 0;
+        while (i < limit) {
+            while (i < limit && !isTokenChar(text.charAt(i))) i++;
+            int s = i;
+            while (i < limit && isTokenChar(text.charAt(i))) i++;
+            int e = i;
+            while (s < e && isTrimChar(text.charAt(s))) s++;
+            while (e > s && isTrimChar(text.charAt(e - 1))) e--;
+            if (s == e) continue;
+
+            if (n == starts.length) {
+                starts = Arrays.copyOf(starts, n * 2);
+                ends = Arrays.copyOf(ends, n * 2);
+                match = Arrays.copyOf(match, n * 2);
+            }
+            starts[n] = s;
+            ends[n] = e;
+            match[n] = termIds.isEmpty() ? -1 : lookup(text.substring(s, e), termIds);
+            n++;
+        }
+        if (n == 0) return text.length() <= maxChars ? text : text.substring(0, maxChars) + " ...";
+
+        int best = 0;
+        int bestScore = -1;
+        if (!termIds.isEmpty()) {
+            int[] counts = new int[termIds.size()];
+            int distinct = 0;
+            int total = 0;
+            for (int t = 0; t < n; t++) {
+                if (match[t] >= 0) {
+                    if (counts[match[t]]++ == 0) distinct++;
+                    total++;
+                }
+                int drop = t - windowTokens;
+                if (drop >= 0 && match[drop] >= 0) {
+                    if (--counts[match[drop]] == 0) distinct--;
+                    total--;
+                }
+                int score = distinct * 1024 + total;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = Math.max(0, t - windowTokens + 1);
+                }
+            }
+        }
+
+        if (bestScore > 0) {
+            int first = best;
+            while (first < n && match[first] < 0) first++;
+            best = first - Math.min(windowTokens / 6, first - best);
+        }
+        int last = Math.min(n, best + windowTokens) - 1;
+
+        int from = starts[best];
+        int to = ends[last];
+        if (to - from > maxChars) {
+            while (last > best && ends[last] - from > maxChars) last--;
+            to = ends[last];
+        }
+        return highlight(text, from, to, starts, ends, match, best, last);
+    }
+
+    private String highlight(String text, int from, int to, int[] starts, int[] ends, int[] match, int first, int last) {
+        StringBuilder sb = new StringBuilder(to - from + 32);
+        if (from > 0) sb.append("... ");
+        int pos = from;
+        for (int t = first; t <= last; t++) {
+            if (match[t] < 0) continue;
+            sb.append(text, pos, starts[t]).append(open).append(text, starts[t], ends[t]).append(close);
+            pos = ends[t];
+        }
+        sb.append(text, pos, to);
+        if (to < text.length()) sb.append(" ...");
+        return sb.toString();
+    }
+
+    private int lookup(String raw, Map<String, Integer> termIds) {
+        String key = raw.toLowerCase(Locale.ROOT);
+        String term = analyzed.get(key);
+        if (term == null) {
+            List<String> out = analyzer.analyze(key);
+            term = out.isEmpty() ? "" : out.get(0);
+            if (analyzed.size() >= MAX_CACHED_TOKENS) analyzed.clear();
+            analyzed.put(key, term);
+        }
+        Integer id = termIds.get(term);
+        return id == null ? -1 : id;
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '\'' || c == '-';
+    }
+
+    private static boolean isTrimChar(char c) {
+        return c == '\'' || c == '-';
+    }
+}
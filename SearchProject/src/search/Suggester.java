@@ -0,0 +1,243 @@
+package search;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import indexer.IndexReader;
+
+public class Suggester {
+
+    private static final int DEFAULT_MAX_EDITS = 2;
+    private static final int PREFIX_LENGTH = 7;
+    private static final Map<IndexReader, Suggester> CACHE = new WeakHashMap<>();
+
+    private final String[] terms;
+    private final String[] words;
+    private final int[] df;
+    private final int[] maxTree;
+    private final int leaves;
+    private final int maxEdits;
+    private final Map<String, int[]> deletes = new HashMap<>();
+
+    public Suggester(IndexReader index) {
+        this(index, DEFAULT_MAX_EDITS);
+    }
+
+    public Suggester(IndexReader index, int maxEdits) {
+        this.maxEdits = Math.max(0, Math.min(DEFAULT_MAX_EDITS, maxEdits));
+
+        List<String> vocab = new ArrayList<>(index.terms());
+        Collections.sort(vocab);
+        this.terms = vocab.toArray(new String[0]);
+        this.words = new String[terms.length];
+        this.df = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            words[i] = index.displayWord(terms[i]);
+            df[i] = index.docFreq(terms[i]);
+        }
+
+        int n = 1;
+        while (n < terms.length) n <<= 1;
+        this.leaves = n;
+        this.maxTree = buildMaxTree();
+
+        buildDeletes();
+    }
+
+    public static Suggester forIndex(IndexReader index) {
+        synchronized (CACHE) {
+            Suggester s = CACHE.get(index);
+            if (s == null || s.vocabularySize() != index.terms().size()) {
+                s = new Suggester(index);
+                CACHE.put(index, s);
+            }
+            return s;
+        }
+    }
+
+    public int vocabularySize() {
+        return terms.length;
+    }
+
+    public List<String> complete(String prefix, int limit) {
+        if (prefix == null || limit <= 0 || terms.length == 0) return Collections.emptyList();
+        String p = prefix.toLowerCase(Locale.ROOT).trim();
+        if (p.isEmpty()) return Collections.emptyList();
+
+        int from = lowerBound(p);
+        int to = lowerBound(p + Character.MAX_VALUE);
+        if (from >= to) return Collections.emptyList();
+
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compareByDf(a[2], b[2]));
+        ranges.add(new int[]{from, to - 1, rangeMax(from, to - 1)});
+
+        Set<String> out = new LinkedHashSet<>();
+        while (!ranges.isEmpty() && out.size() < limit) {
+            int[] r = ranges.poll();
+            int best = r[2];
+            out.add(words[best]);
+            if (r[0] <= best - 1) ranges.add(new int[]{r[0], best - 1, rangeMax(r[0], best - 1)});
+            if (best + 1 <= r[1]) ranges.add(new int[]{best + 1, r[1], rangeMax(best + 1, r[1])});
+        }
+        return new ArrayList<>(out);
+    }
+
+    public List<String> suggest(String word, int limit) {
+        if (word == null || limit <= 0 || terms.length == 0) return Collections.emptyList();
+        String w = word.toLowerCase(Locale.ROOT).trim();
+        if (w.isEmpty()) return Collections.emptyList();
+
+        Set<String> variants = new HashSet<>();
+        String key = prefixOf(w);
+        variants.add(key);
+        addDeletes(key, maxEdits, variants);
+
+        Set<Integer> seen = new HashSet<>();
+        List<int[]> found = new ArrayList<>();
+        for (String v : variants) {
+            int[] ids = deletes.get(v);
+            if (ids == null) continue;
+            for (int i = 1; i <= ids[0]; i++) {
+                int id = ids[i];
+                if (!seen.add(id)) continue;
+                String t = terms[id];
+                if (Math.abs(t.length() - w.length()) > maxEdits) continue;
+                int d = distance(w, t, maxEdits);
+                if (d <= maxEdits) found.add(new int[]{id, d});
+            }
+        }
+
+        found.sort((a, b) -> {
+            if (a[1] != b[1]) return Integer.compare(a[1], b[1]);
+            if (df[a[0]] != df[b[0]]) return Integer.compare(df[b[0]], df[a[0]]);
+            return terms[a[0]].compareTo(terms[b[0]]);
+        });
+
+        Set<String> out = new LinkedHashSet<>();
+        for (int i = 0; i < found.size() && out.size() < limit; i++) {
+            out.add(words[found.get(i)[0]]);
+        }
+        return new ArrayList<>(out);
+    }
+
+    private int[] buildMaxTree() {
+        int[] tree = new int[2 * leaves];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < terms.length; i++) tree[leaves + i] = i;
+        for (int i = leaves - 1; i >= 1; i--) {
+            tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+        return tree;
+    }
+
+    private int rangeMax(int lo, int hi) {
+        int best = -1;
+        for (int l = lo + leaves, r = hi + leaves + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) best = better(best, maxTree[l++]);
+            if ((r & 1) == 1) best = better(best, maxTree[--r]);
+        }
+        return best;
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        return compareByDf(a, b) <= 0 ? a : b;
+    }
+
+    private int compareByDf(int a, int b) {
+        if (df[a] != df[b]) return Integer.compare(df[b], df[a]);
+        return Integer.compare(a, b);
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void buildDeletes() {
+        Set<String> variants = new HashSet<>();
+        for (int id = 0; id < terms.length; id++) {
+            variants.clear();
+            String key = prefixOf(terms[id]);
+            variants.add(key);
+            addDeletes(key, maxEdits, variants);
+            for (String v : variants) {
+                int[] ids = deletes.get(v);
+                if (ids == null) {
+                    ids = new int[4];
+                    deletes.put(v, ids);
+                } else if (ids[0] + 1 == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                    deletes.put(v, ids);
+                }
+                ids[++ids[0]] = id;
+            }
+        }
+    }
+
+    private static String prefixOf(String s) {
+        return s.length() <= PREFIX_LENGTH ? s : s.substring(0, PREFIX_LENGTH);
+    }
+
+    private static void addDeletes(String s, int depth, Set<String> out) {
+        if (depth == 0 || s.length() <= 1) return;
+        for (int i = 0; i < s.length(); i++) {
+            String d = s.substring(0, i) + s.substring(i + 1);
+            if (out.add(d)) {
+                addDeletes(d, depth - 1, out);
+            }
+        }
+    }
+
+    static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > max) return max + 1;
+
+        int[] prev2 = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = (ca == cb) ? 0 : 1;
+                int v = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    v = Math.min(v, prev2[j - 2] + 1);
+                }
+                cur[j] = v;
+                if (v < rowMin) rowMin = v;
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[m];
+    }
+}
@@ -0,0 +1,59 @@
+package util;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+public class ChecksumBlockFile implements Closeable {
+    private final FileChannel channel;
+    private final long base;
+    private final int blockSize;
+
+    public ChecksumBlockFile(Path file, long base, int blockSize) throws IOException {
+        if (blockSize <= 0) throw new IOException("invalid block size " + blockSize);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.base = base;
+        this.blockSize = blockSize;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    public byte[] block(int k) throws IOException {
+        long pos = base + (long) k * (blockSize + 8L);
+        int len = readAt(pos, 4).getInt();
+        if (len == 0) return new byte[0];
+        if (len < 0 || len > blockSize) throw new IOException("corrupt block header at block " + k);
+
+        ByteBuffer buf = readAt(pos + 4, len + 4);
+        CRC32C crc = new CRC32C();
+        crc.update(buf.array(), 0, len);
+        if ((int) crc.getValue() != buf.getInt(len)) throw new IOException("checksum mismatch in block " + k);
+        byte[] data = new byte[len];
+        System.arraycopy(buf.array(), 0, data, 0, len);
+        return data;
+    }
+
+    public ByteBuffer readAt(long pos, int len) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(len);
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, pos + buf.position());
+            if (n < 0) throw new IOException("truncated at offset " + (pos + buf.position()));
+        }
+        buf.flip();
+        return buf;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
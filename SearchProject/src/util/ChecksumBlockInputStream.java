@@ -0,0 +1,73 @@
+package util;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32C;
+
+public class ChecksumBlockInputStream extends InputStream {
+    private static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+
+    private final DataInputStream in;
+    private final CRC32C crc = new CRC32C();
+    private byte[] block = new byte[0];
+    private int size;
+    private int pos;
+    private long blocks;
+    private boolean eof;
+
+    public ChecksumBlockInputStream(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == size && !nextBlock()) return -1;
+        return block[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (pos == size && !nextBlock()) return -1;
+        int n = Math.min(len, size - pos);
+        System.arraycopy(block, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return size - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (eof) return false;
+        int len;
+        try {
+            len = in.readInt();
+            if (len == 0) {
+                eof = true;
+                return false;
+            }
+            if (len < 0 || len > MAX_BLOCK_SIZE) throw new IOException("corrupt block header at block " + blocks);
+            if (len > block.length) block = new byte[len];
+            in.readFully(block, 0, len);
+            int expected = in.readInt();
+            crc.reset();
+            crc.update(block, 0, len);
+            if ((int) crc.getValue() != expected) throw new IOException("checksum mismatch in block " + blocks);
+        } catch (EOFException e) {
+            throw new IOException("truncated after block " + blocks, e);
+        }
+        blocks++;
+        size = len;
+        pos = 0;
+        return true;
+    }
+}
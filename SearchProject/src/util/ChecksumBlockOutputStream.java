@@ -0,0 +1,85 @@
+package util;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32C;
+
+public class ChecksumBlockOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final byte[] block;
+    private final CRC32C crc = new CRC32C();
+    private int size;
+    private long position;
+    private boolean finished;
+
+    public ChecksumBlockOutputStream(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    public ChecksumBlockOutputStream(OutputStream out, int blockSize) {
+        this.out = new DataOutputStream(out);
+        this.block = new byte[Math.max(512, blockSize)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (size == block.length) writeBlock();
+        block[size++] = (byte) b;
+        position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (size == block.length) writeBlock();
+            int n = Math.min(len, block.length - size);
+            System.arraycopy(b, off, block, size, n);
+            size += n;
+            position += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public int blockSize() {
+        return block.length;
+    }
+
+    public void finish() throws IOException {
+        if (finished) return;
+        writeBlock();
+        out.writeInt(0);
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (size == 0) return;
+        crc.reset();
+        crc.update(block, 0, size);
+        out.writeInt(size);
+        out.write(block, 0, size);
+        out.writeInt((int) crc.getValue());
+        size = 0;
+    }
+}
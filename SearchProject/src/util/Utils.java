@@ -1,11 +1,16 @@
 package util;
 import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.zip.CRC32C;
 
 public final class Utils {
 
@@ -59,10 +64,66 @@ public final class Utils {
     public static void writeAtomic(Path target, Consumer<BufferedWriter> writerConsumer) throws IOException {
         ensureParentDirs(target);
         Path tmp = target.resolveSibling(target.getFileName().toString() + ".tmp");
-        try (BufferedWriter w = newUtf8Writer(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             BufferedWriter w = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8))) {
             writerConsumer.accept(w);
+            w.flush();
+            fos.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
         }
         Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.getParent());
+    }
+
+    public static void writeAtomic(Path target, byte[] data, boolean durable) throws IOException {
+        ensureParentDirs(target);
+        Path tmp = target.resolveSibling(target.getFileName().toString() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+            fos.write(data);
+            if (durable) fos.getFD().sync();
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (durable) syncDirectory(target.getParent());
+    }
+
+    public static void publish(Path tmp, Path target) throws IOException {
+        sync(tmp);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.getParent());
+    }
+
+    public static void sync(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+    }
+
+    public static void syncDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir == null ? Path.of(".") : dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignore) {
+        }
+    }
+
+    public static long crc32c(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    public static long crc32c(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0) crc.update(buf, 0, n);
+        }
+        return crc.getValue();
     }
 
     public static String shortHex(String s) {